@@ -0,0 +1,291 @@
+package de.voodoosoft.blackcat.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+
+
+/**
+ * Annotation processor generating a reflection-free <code>MembersInjector</code> for each component class.
+ * <p/>
+ * The generated injector is named after the component class with the suffix <code>_MembersInjector</code>
+ * and sets {@code @Inject} fields and invokes {@code @PostConstruct}, {@code @Reset} and {@code @PreDestroy} methods directly.
+ * <br/>Callbacks are invoked one at a time and reported with their method names, so overridden ancestor callbacks are skipped.
+ * <br/>Classes which cannot be accessed from generated code in the same package, for example because of private or final
+ * injection points, are skipped with a note and keep being handled by reflection at runtime.
+ * <br/>Fields of type <code>Provider</code>, <code>Lazy</code> or any other parameterized type are not supported either.
+ */
+@SupportedAnnotationTypes({MembersInjectorProcessor.INJECT, MembersInjectorProcessor.POST_CONSTRUCT, MembersInjectorProcessor.RESET,
+	MembersInjectorProcessor.PRE_DESTROY})
+public class MembersInjectorProcessor extends AbstractProcessor {
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		// collect all classes declaring annotated members
+		Set<TypeElement> componentTypes = new LinkedHashSet<>();
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				Element enclosing = element.getEnclosingElement();
+				if (enclosing.getKind() == ElementKind.CLASS) {
+					componentTypes.add((TypeElement)enclosing);
+				}
+			}
+		}
+
+		for (TypeElement componentType : componentTypes) {
+			String problem = checkAccessible(componentType);
+			if (problem != null) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+					"no members injector generated, falling back to reflection: " + problem, componentType);
+				continue;
+			}
+			try {
+				generateMembersInjector(componentType);
+			}
+			catch (IOException e) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"failed to generate members injector: " + e.getMessage(), componentType);
+			}
+		}
+
+		// the annotations are read at runtime as well, so do not claim them
+		return false;
+	}
+
+	/**
+	 * Returns a description of the first member which generated code cannot access, or null if there is none.
+	 */
+	private String checkAccessible(TypeElement componentType) {
+		if (!componentType.getTypeParameters().isEmpty()) {
+			return "generic class [" + componentType + "]";
+		}
+		for (Element type = componentType; type.getKind() != ElementKind.PACKAGE; type = type.getEnclosingElement()) {
+			if (type.getModifiers().contains(Modifier.PRIVATE)) {
+				return "private class [" + type + "]";
+			}
+			if (((TypeElement)type).getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+				return "inner class [" + type + "]";
+			}
+			if (((TypeElement)type).getNestingKind().isNested() && ((TypeElement)type).getNestingKind() != NestingKind.MEMBER) {
+				return "local class [" + type + "]";
+			}
+		}
+
+		for (VariableElement field : ElementFilter.fieldsIn(componentType.getEnclosedElements())) {
+			if (getAnnotation(field, INJECT) == null) {
+				continue;
+			}
+			Set<Modifier> modifiers = field.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.STATIC)) {
+				return "private, final or static injection [" + field + "]";
+			}
+			TypeMirror fieldType = field.asType();
+			if (fieldType.getKind() != TypeKind.DECLARED) {
+				return "unsupported injection type [" + fieldType + "] of [" + field + "]";
+			}
+			DeclaredType declaredType = (DeclaredType)fieldType;
+			String typeName = ((TypeElement)declaredType.asElement()).getQualifiedName().toString();
+			if (!declaredType.getTypeArguments().isEmpty() || PROVIDER.equals(typeName) || LAZY.equals(typeName)) {
+				return "unsupported injection type [" + fieldType + "] of [" + field + "]";
+			}
+			if (declaredType.asElement().getModifiers().contains(Modifier.PRIVATE)) {
+				return "private injection type [" + fieldType + "] of [" + field + "]";
+			}
+		}
+
+		for (ExecutableElement method : ElementFilter.methodsIn(componentType.getEnclosedElements())) {
+			if (getAnnotation(method, POST_CONSTRUCT) == null && getAnnotation(method, RESET) == null && getAnnotation(method, PRE_DESTROY) == null) {
+				continue;
+			}
+			if (method.getModifiers().contains(Modifier.PRIVATE) || !method.getParameters().isEmpty()) {
+				return "private or parameterized callback [" + method + "]";
+			}
+		}
+
+		return null;
+	}
+
+	private void generateMembersInjector(TypeElement componentType) throws IOException {
+		PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(componentType);
+		String packageName = packageElement.getQualifiedName().toString();
+		String binaryName = processingEnv.getElementUtils().getBinaryName(componentType).toString();
+		String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + SUFFIX;
+		String componentName = componentType.getQualifiedName().toString();
+
+		// collect injection points and callbacks in declaration order
+		List<VariableElement> fields = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		for (VariableElement field : ElementFilter.fieldsIn(componentType.getEnclosedElements())) {
+			AnnotationMirror inject = getAnnotation(field, INJECT);
+			if (inject != null) {
+				fields.add(field);
+				names.add(getValue(inject));
+			}
+		}
+		List<ExecutableElement> postConstructs = new ArrayList<>();
+		List<ExecutableElement> resets = new ArrayList<>();
+		List<ExecutableElement> preDestroys = new ArrayList<>();
+		for (ExecutableElement method : ElementFilter.methodsIn(componentType.getEnclosedElements())) {
+			if (getAnnotation(method, POST_CONSTRUCT) != null) {
+				postConstructs.add(method);
+			}
+			if (getAnnotation(method, RESET) != null) {
+				resets.add(method);
+			}
+			if (getAnnotation(method, PRE_DESTROY) != null) {
+				preDestroys.add(method);
+			}
+		}
+
+		String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+		Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, componentType).openWriter();
+		try (PrintWriter out = new PrintWriter(writer)) {
+			if (!packageName.isEmpty()) {
+				out.println("package " + packageName + ";");
+				out.println();
+			}
+			out.println("/**");
+			out.println(" * Generated by " + getClass().getName() + ", do not edit.");
+			out.println(" */");
+			out.println("public final class " + simpleName + " implements de.voodoosoft.blackcat.MembersInjector<" + componentName + "> {");
+
+			out.println("\t@Override");
+			out.println("\tpublic Class<?>[] getInjectionTypes() {");
+			out.print("\t\treturn new Class<?>[] {");
+			for (int i = 0; i < fields.size(); i++) {
+				out.print((i > 0 ? ", " : "") + toSource(fields.get(i).asType()) + ".class");
+			}
+			out.println("};");
+			out.println("\t}");
+			out.println();
+
+			out.println("\t@Override");
+			out.println("\tpublic String[] getInjectionNames() {");
+			out.print("\t\treturn new String[] {");
+			for (int i = 0; i < names.size(); i++) {
+				out.print((i > 0 ? ", " : "") + (names.get(i) == null ? "null" : processingEnv.getElementUtils().getConstantExpression(names.get(i))));
+			}
+			out.println("};");
+			out.println("\t}");
+			out.println();
+
+			out.println("\t@Override");
+			out.println("\tpublic void inject(" + componentName + " component, int index, Object dependency) {");
+			out.println("\t\tswitch (index) {");
+			for (int i = 0; i < fields.size(); i++) {
+				VariableElement field = fields.get(i);
+				out.println("\t\t\tcase " + i + ":");
+				out.println("\t\t\t\tcomponent." + field.getSimpleName() + " = (" + toSource(field.asType()) + ")dependency;");
+				out.println("\t\t\t\tbreak;");
+			}
+			out.println("\t\t\tdefault:");
+			out.println("\t\t\t\tthrow new IndexOutOfBoundsException(\"no injection point \" + index);");
+			out.println("\t\t}");
+			out.println("\t}");
+			out.println();
+
+			writeCallback(out, "PostConstruct", componentName, postConstructs);
+			out.println();
+			writeCallback(out, "Reset", componentName, resets);
+			out.println();
+			writeCallback(out, "PreDestroy", componentName, preDestroys);
+			out.println("}");
+		}
+	}
+
+	/**
+	 * Writes the name getter and the invoker of the given callbacks.
+	 * <br/>Names let the runtime skip callbacks overridden by subclasses, static callbacks have no name as they cannot be overridden.
+	 */
+	private void writeCallback(PrintWriter out, String name, String componentName, List<ExecutableElement> methods) {
+		out.println("\t@Override");
+		out.println("\tpublic String[] get" + name + "Names() {");
+		out.print("\t\treturn new String[] {");
+		for (int i = 0; i < methods.size(); i++) {
+			ExecutableElement method = methods.get(i);
+			boolean overridable = !method.getModifiers().contains(Modifier.STATIC);
+			out.print((i > 0 ? ", " : "") + (overridable ? "\"" + method.getSimpleName() + "\"" : "null"));
+		}
+		out.println("};");
+		out.println("\t}");
+		out.println();
+		out.println("\t@Override");
+		out.println("\tpublic void " + Character.toLowerCase(name.charAt(0)) + name.substring(1) + "(" + componentName + " component, int index) {");
+		out.println("\t\tswitch (index) {");
+		for (int i = 0; i < methods.size(); i++) {
+			ExecutableElement method = methods.get(i);
+			String target = method.getModifiers().contains(Modifier.STATIC) ? componentName : "component";
+			out.println("\t\t\tcase " + i + ":");
+			out.println("\t\t\t\t" + target + "." + method.getSimpleName() + "();");
+			out.println("\t\t\t\tbreak;");
+		}
+		out.println("\t\t\tdefault:");
+		out.println("\t\t\t\tthrow new IndexOutOfBoundsException(\"no callback \" + index);");
+		out.println("\t\t}");
+		out.println("\t}");
+	}
+
+	private String toSource(TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type).toString();
+	}
+
+	private static AnnotationMirror getAnnotation(Element element, String annotationName) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if (((TypeElement)annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+				return annotation;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the component name of the given {@code @Inject} annotation or null if unnamed.
+	 */
+	private static String getValue(AnnotationMirror inject) {
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : inject.getElementValues().entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals("value")) {
+				String value = (String)entry.getValue().getValue();
+				return value.isEmpty() ? null : value;
+			}
+		}
+		return null;
+	}
+
+	static final String INJECT = "de.voodoosoft.blackcat.Inject";
+	static final String POST_CONSTRUCT = "de.voodoosoft.blackcat.PostConstruct";
+	static final String RESET = "de.voodoosoft.blackcat.Reset";
+	static final String PRE_DESTROY = "de.voodoosoft.blackcat.PreDestroy";
+	private static final String PROVIDER = "de.voodoosoft.blackcat.Provider";
+	private static final String LAZY = "de.voodoosoft.blackcat.Lazy";
+	private static final String SUFFIX = "_MembersInjector";
+}
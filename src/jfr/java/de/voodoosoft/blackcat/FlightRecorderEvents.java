@@ -0,0 +1,205 @@
+package de.voodoosoft.blackcat;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Internal Java Flight Recorder events of the {@link Injector}.
+ * <p/>
+ * Compiled separately from the main classes against Java 11, it is only loaded by {@link FlightRecorder#load()}
+ * after checking that the runtime provides <code>jdk.jfr</code>.
+ * <br/>Begin methods return null while the respective event is not recorded, which costs no allocation.
+ */
+final class FlightRecorderEvents extends FlightRecorder {
+	FlightRecorderEvents() {
+	}
+
+	@Override
+	public Object beginCreation() {
+		if (!Probes.CREATION.isEnabled()) {
+			return null;
+		}
+		ComponentCreationEvent event = new ComponentCreationEvent();
+		event.depth = DEPTH.get()[0]++;
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endCreation(Object event, ComponentDef componentDef) {
+		ComponentCreationEvent creationEvent = (ComponentCreationEvent)event;
+		DEPTH.get()[0]--;
+		creationEvent.end();
+		if (creationEvent.shouldCommit()) {
+			creationEvent.componentType = componentDef.getType();
+			creationEvent.componentName = componentDef.getName();
+			creationEvent.scope = componentDef.getScope().name();
+			creationEvent.commit();
+		}
+	}
+
+	@Override
+	public Object beginInjection() {
+		if (!Probes.INJECTION.isEnabled()) {
+			return null;
+		}
+		ComponentInjectionEvent event = new ComponentInjectionEvent();
+		event.depth = DEPTH.get()[0];
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endInjection(Object event, ComponentDef componentDef) {
+		ComponentInjectionEvent injectionEvent = (ComponentInjectionEvent)event;
+		injectionEvent.end();
+		if (injectionEvent.shouldCommit()) {
+			injectionEvent.componentType = componentDef.getType();
+			injectionEvent.componentName = componentDef.getName();
+			injectionEvent.scope = componentDef.getScope().name();
+			injectionEvent.injectionCount = componentDef.getInjections().length;
+			injectionEvent.commit();
+		}
+	}
+
+	@Override
+	public Object beginPostConstruct() {
+		if (!Probes.POST_CONSTRUCT.isEnabled()) {
+			return null;
+		}
+		PostConstructEvent event = new PostConstructEvent();
+		event.depth = DEPTH.get()[0];
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endPostConstruct(Object event, ComponentDef componentDef) {
+		PostConstructEvent postConstructEvent = (PostConstructEvent)event;
+		postConstructEvent.end();
+		if (postConstructEvent.shouldCommit()) {
+			postConstructEvent.componentType = componentDef.getType();
+			postConstructEvent.componentName = componentDef.getName();
+			postConstructEvent.scope = componentDef.getScope().name();
+			postConstructEvent.commit();
+		}
+	}
+
+	@Override
+	public Object beginDefinition() {
+		if (!Probes.DEFINITION.isEnabled()) {
+			return null;
+		}
+		ComponentDefinitionEvent event = new ComponentDefinitionEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endDefinition(Object event, ComponentDef componentDef) {
+		ComponentDefinitionEvent definitionEvent = (ComponentDefinitionEvent)event;
+		definitionEvent.end();
+		if (definitionEvent.shouldCommit()) {
+			definitionEvent.componentType = componentDef.getType();
+			definitionEvent.componentName = componentDef.getName();
+			definitionEvent.scope = componentDef.getScope().name();
+			definitionEvent.injectionCount = componentDef.getInjections().length;
+			definitionEvent.commit();
+		}
+	}
+
+	@Name("de.voodoosoft.blackcat.ComponentCreation")
+	@Label("Component Creation")
+	@Description("Creation of a component including provider, injections and post construction")
+	@Category("Blackcat")
+	@StackTrace(false)
+	static class ComponentCreationEvent extends Event {
+		@Label("Component Type")
+		Class<?> componentType;
+
+		@Label("Component Name")
+		String componentName;
+
+		@Label("Scope")
+		String scope;
+
+		@Label("Depth")
+		@Description("Number of component creations enclosing this one on the same thread")
+		int depth;
+	}
+
+	@Name("de.voodoosoft.blackcat.ComponentInjection")
+	@Label("Component Injection")
+	@Description("Injection of all dependencies into a component, including creation of the dependencies")
+	@Category("Blackcat")
+	@StackTrace(false)
+	static class ComponentInjectionEvent extends Event {
+		@Label("Component Type")
+		Class<?> componentType;
+
+		@Label("Component Name")
+		String componentName;
+
+		@Label("Scope")
+		String scope;
+
+		@Label("Injections")
+		int injectionCount;
+
+		@Label("Depth")
+		int depth;
+	}
+
+	@Name("de.voodoosoft.blackcat.PostConstruct")
+	@Label("Post Construct")
+	@Description("Invocation of a component's post construction callback")
+	@Category("Blackcat")
+	@StackTrace(false)
+	static class PostConstructEvent extends Event {
+		@Label("Component Type")
+		Class<?> componentType;
+
+		@Label("Component Name")
+		String componentName;
+
+		@Label("Scope")
+		String scope;
+
+		@Label("Depth")
+		int depth;
+	}
+
+	@Name("de.voodoosoft.blackcat.ComponentDefinition")
+	@Label("Component Definition")
+	@Description("Definition of a component including the annotation scan of its class")
+	@Category("Blackcat")
+	static class ComponentDefinitionEvent extends Event {
+		@Label("Component Type")
+		Class<?> componentType;
+
+		@Label("Component Name")
+		String componentName;
+
+		@Label("Scope")
+		String scope;
+
+		@Label("Injections")
+		int injectionCount;
+	}
+
+	/**
+	 * Event instances for checking whether events are recorded without allocating.
+	 */
+	private static final class Probes {
+		static final ComponentCreationEvent CREATION = new ComponentCreationEvent();
+		static final ComponentInjectionEvent INJECTION = new ComponentInjectionEvent();
+		static final PostConstructEvent POST_CONSTRUCT = new PostConstructEvent();
+		static final ComponentDefinitionEvent DEFINITION = new ComponentDefinitionEvent();
+	}
+
+	private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+}
@@ -0,0 +1,70 @@
+package de.voodoosoft.blackcat;
+
+import java.io.File;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.TestCase;
+
+
+
+/**
+ * Tests Flight Recorder events, requires a runtime providing <code>jdk.jfr</code>.
+ */
+public class TestFlightRecorder extends TestCase {
+
+	/**
+	 * Tests that creating a nested component graph records creation, injection and post construction events.
+	 */
+	public void testEvents() throws Exception {
+		Injector injector = new Injector();
+		File file = File.createTempFile("blackcat", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("de.voodoosoft.blackcat.ComponentCreation").withThreshold(java.time.Duration.ZERO);
+			recording.enable("de.voodoosoft.blackcat.ComponentInjection").withThreshold(java.time.Duration.ZERO);
+			recording.enable("de.voodoosoft.blackcat.PostConstruct").withThreshold(java.time.Duration.ZERO);
+			recording.enable("de.voodoosoft.blackcat.ComponentDefinition").withThreshold(java.time.Duration.ZERO);
+			recording.start();
+
+			injector.defineComponent(GuitarCollection.class, GuitarCollection::new);
+			injector.defineComponent(Guitar.class, Guitar::new);
+			injector.defineComponent(ElectricGuitar.class, "Stratocaster", () -> new ElectricGuitar("Stratocaster"));
+			injector.defineComponent(Guitar.class, "Dreadnought", () -> new Guitar("Dreadnought"));
+			injector.defineComponent(Body.class, true, Body::new);
+			injector.defineComponent(Artist.class, Artist::new);
+			injector.getComponent(Guitar.class);
+
+			recording.stop();
+			recording.dump(file.toPath());
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+		file.delete();
+
+		int definitions = 0;
+		int creations = 0;
+		int postConstructs = 0;
+		int maxDepth = 0;
+		for (RecordedEvent event : events) {
+			String eventName = event.getEventType().getName();
+			if (eventName.equals("de.voodoosoft.blackcat.ComponentDefinition")) {
+				definitions++;
+			}
+			else if (eventName.equals("de.voodoosoft.blackcat.ComponentCreation")) {
+				creations++;
+				maxDepth = Math.max(maxDepth, event.getInt("depth"));
+			}
+			else if (eventName.equals("de.voodoosoft.blackcat.PostConstruct")) {
+				postConstructs++;
+				assertEquals(Guitar.class.getName(), event.getClass("componentType").getName());
+			}
+		}
+		assertEquals(6, definitions);
+		// guitar, body and artist
+		assertEquals(3, creations);
+		assertEquals(1, postConstructs);
+		assertEquals(1, maxDepth);
+	}
+}
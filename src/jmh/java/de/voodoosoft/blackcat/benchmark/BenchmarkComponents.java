@@ -0,0 +1,87 @@
+package de.voodoosoft.blackcat.benchmark;
+
+import de.voodoosoft.blackcat.Inject;
+import de.voodoosoft.blackcat.Injector;
+import de.voodoosoft.blackcat.PostConstruct;
+
+
+
+/**
+ * Component classes shared by all benchmarks.
+ */
+public final class BenchmarkComponents {
+	private BenchmarkComponents() {
+	}
+
+	/**
+	 * Defines all benchmark components.
+	 *
+	 * @param injector empty injector
+	 * @return given injector
+	 */
+	public static Injector defineAll(Injector injector) {
+		injector.defineComponent(Body.class, Body::new);
+		injector.defineComponent(Body.class, "Maple", Body::new);
+		injector.defineComponent(Bass.class, Bass::new);
+		injector.defineComponent(StringBand.class, StringBand::new);
+		injector.defineComponent(Mixer.class, true, Mixer::new);
+		injector.defineComponent(Track.class, Track::new);
+		injector.defineComponent(Drums.class, Drums::new);
+		return injector;
+	}
+
+	public interface Instrument {
+	}
+
+	public static class Body {
+	}
+
+	public static class Bass {
+		@Inject
+		private Body body;
+
+		public Body getBody() {
+			return body;
+		}
+	}
+
+	public static class StringBand {
+		@Inject
+		private Bass bass;
+
+		public Bass getBass() {
+			return bass;
+		}
+	}
+
+	public static class Mixer {
+		private int channels;
+
+		@PostConstruct
+		private void initialize() {
+			channels = 16;
+		}
+
+		public int getChannels() {
+			return channels;
+		}
+	}
+
+	public static class Track {
+		@Inject
+		private Mixer mixer;
+
+		public Mixer getMixer() {
+			return mixer;
+		}
+	}
+
+	public static class Drums implements Instrument {
+		@Inject
+		private Body body;
+
+		public Body getBody() {
+			return body;
+		}
+	}
+}
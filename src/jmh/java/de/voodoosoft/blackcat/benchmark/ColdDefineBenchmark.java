@@ -0,0 +1,148 @@
+package de.voodoosoft.blackcat.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.voodoosoft.blackcat.Injector;
+
+
+
+/**
+ * Measures defining component classes which have never been scanned, with and without a loaded metadata index.
+ * <br/>Each invocation defines fresh copies of the benchmark component classes, loaded by separate class loaders.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(3)
+@State(Scope.Benchmark)
+public class ColdDefineBenchmark {
+	@Param({"false", "true"})
+	public boolean indexed;
+
+	@Setup(Level.Trial)
+	public void loadIndex() throws IOException {
+		if (!indexed) {
+			return;
+		}
+		Path path = Files.createTempFile("blackcat", ".index");
+		try {
+			defineAll(new Injector(), loadComponentClasses(1)).writeMetadataIndex(path, BUILD_ID);
+			if (!Injector.loadMetadataIndex(path, BUILD_ID)) {
+				throw new IllegalStateException("metadata index not loaded");
+			}
+		}
+		finally {
+			Files.delete(path);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void loadClasses() {
+		componentClasses = loadComponentClasses(COPIES);
+	}
+
+	@Benchmark
+	public Injector defineComponents() {
+		return defineAll(new Injector(), componentClasses);
+	}
+
+	private static Injector defineAll(Injector injector, List<Class<?>> componentClasses) {
+		for (Class<?> componentClass : componentClasses) {
+			injector.defineComponent(componentClass);
+		}
+		return injector;
+	}
+
+	/**
+	 * Loads the given number of copies of all concrete benchmark component classes.
+	 */
+	private static List<Class<?>> loadComponentClasses(int copies) {
+		List<Class<?>> componentClasses = new ArrayList<>();
+		for (int i = 0; i < copies; i++) {
+			ClassLoader loader = new ComponentClassLoader(ColdDefineBenchmark.class.getClassLoader());
+			for (Class<?> componentClass : BenchmarkComponents.class.getDeclaredClasses()) {
+				if (componentClass.isInterface()) {
+					continue;
+				}
+				try {
+					componentClasses.add(loader.loadClass(componentClass.getName()));
+				}
+				catch (ClassNotFoundException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+		return componentClasses;
+	}
+
+	/**
+	 * Defines its own copies of the benchmark component classes and their enclosing class, all other classes are loaded
+	 * by the parent.
+	 */
+	private static final class ComponentClassLoader extends ClassLoader {
+		ComponentClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (!name.startsWith(BenchmarkComponents.class.getName())) {
+				return super.loadClass(name, resolve);
+			}
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> type = findLoadedClass(name);
+				if (type == null) {
+					byte[] bytes = readClassFile(name);
+					type = defineClass(name, bytes, 0, bytes.length);
+				}
+				if (resolve) {
+					resolveClass(type);
+				}
+				return type;
+			}
+		}
+
+		private byte[] readClassFile(String name) throws ClassNotFoundException {
+			try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+				if (in == null) {
+					throw new ClassNotFoundException(name);
+				}
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buffer = new byte[4096];
+				for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+					out.write(buffer, 0, read);
+				}
+				return out.toByteArray();
+			}
+			catch (IOException e) {
+				throw new ClassNotFoundException(name, e);
+			}
+		}
+	}
+
+	private static final int COPIES = 100;
+	private static final String BUILD_ID = "benchmark";
+
+	private List<Class<?>> componentClasses;
+}
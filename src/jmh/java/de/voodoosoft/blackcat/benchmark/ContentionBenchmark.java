@@ -0,0 +1,50 @@
+package de.voodoosoft.blackcat.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.voodoosoft.blackcat.Injector;
+import de.voodoosoft.blackcat.benchmark.BenchmarkComponents.Mixer;
+import de.voodoosoft.blackcat.benchmark.BenchmarkComponents.Track;
+
+
+
+/**
+ * Measures 32 threads sharing one injector and its singletons.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class ContentionBenchmark {
+	private Injector injector;
+
+	@Setup
+	public void setUp() {
+		injector = BenchmarkComponents.defineAll(new Injector());
+	}
+
+	@Benchmark
+	public Mixer singleton() {
+		return injector.getComponent(Mixer.class);
+	}
+
+	@Benchmark
+	public Track singletonInjection() {
+		return injector.getComponent(Track.class);
+	}
+}
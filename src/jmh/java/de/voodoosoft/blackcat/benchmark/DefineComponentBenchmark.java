@@ -0,0 +1,37 @@
+package de.voodoosoft.blackcat.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.voodoosoft.blackcat.Injector;
+
+
+
+/**
+ * Measures defining all benchmark components in a fresh injector.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefineComponentBenchmark {
+	@Benchmark
+	public Injector defineComponents() {
+		return BenchmarkComponents.defineAll(new Injector());
+	}
+
+	@Benchmark
+	public Injector defineAndFreeze() {
+		Injector injector = BenchmarkComponents.defineAll(new Injector());
+		injector.freeze();
+		return injector;
+	}
+}
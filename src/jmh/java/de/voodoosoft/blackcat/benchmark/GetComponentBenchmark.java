@@ -0,0 +1,92 @@
+package de.voodoosoft.blackcat.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.voodoosoft.blackcat.ComponentKey;
+import de.voodoosoft.blackcat.Injector;
+import de.voodoosoft.blackcat.benchmark.BenchmarkComponents.Bass;
+import de.voodoosoft.blackcat.benchmark.BenchmarkComponents.Body;
+import de.voodoosoft.blackcat.benchmark.BenchmarkComponents.Instrument;
+import de.voodoosoft.blackcat.benchmark.BenchmarkComponents.Mixer;
+import de.voodoosoft.blackcat.benchmark.BenchmarkComponents.StringBand;
+import de.voodoosoft.blackcat.benchmark.BenchmarkComponents.Track;
+
+
+
+/**
+ * Measures single threaded component retrieval for all kinds of definitions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GetComponentBenchmark {
+	@Param({"false", "true"})
+	public boolean frozen;
+
+	private Injector injector;
+	private ComponentKey<StringBand> stringBandKey;
+
+	@Setup
+	public void setUp() {
+		injector = BenchmarkComponents.defineAll(new Injector());
+		if (frozen) {
+			injector.freeze();
+		}
+		stringBandKey = injector.getComponentKey(StringBand.class);
+	}
+
+	@Benchmark
+	public Body prototype() {
+		return injector.getComponent(Body.class);
+	}
+
+	@Benchmark
+	public Mixer singleton() {
+		return injector.getComponent(Mixer.class);
+	}
+
+	@Benchmark
+	public Body named() {
+		return injector.getComponent(Body.class, "Maple");
+	}
+
+	@Benchmark
+	public Bass singleInjection() {
+		return injector.getComponent(Bass.class);
+	}
+
+	@Benchmark
+	public StringBand nestedGraph() {
+		return injector.getComponent(StringBand.class);
+	}
+
+	@Benchmark
+	public StringBand nestedGraphByKey() {
+		return injector.getComponent(stringBandKey);
+	}
+
+	@Benchmark
+	public Track singletonInjection() {
+		return injector.getComponent(Track.class);
+	}
+
+	@Benchmark
+	public Instrument interfaceLookup() {
+		return injector.getComponent(Instrument.class);
+	}
+}
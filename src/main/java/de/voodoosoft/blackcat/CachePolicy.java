@@ -0,0 +1,126 @@
+package de.voodoosoft.blackcat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounds and reference strength of the instances of components of scope {@link Scope#CACHED}.
+ * <p/>
+ * Policies are immutable, each <code>with</code> method returns a modified copy:
+ * <pre>
+ * {@code
+ * injector.setCachePolicy(CachePolicy.DEFAULT
+ *    .withMaxWeight(256 << 20, texture -> ((Texture)texture).getByteSize())
+ *    .withExpireAfterAccess(5, TimeUnit.MINUTES));
+ * }
+ * </pre>
+ * Instances exceeding the maximum number of entries or the maximum weight are evicted least recently used first, approximated by their last access times.
+ *
+ * @see Injector#setCachePolicy(CachePolicy)
+ */
+public final class CachePolicy {
+	/**
+	 * Defines how strongly cached instances are referenced.
+	 */
+	public enum References {
+		/**
+		 * Keeps instances until they are evicted by the bounds of the policy.
+		 * <br/>Evicted instances are destroyed by invoking their {@link PreDestroy} methods.
+		 */
+		STRONG,
+
+		/**
+		 * Lets the garbage collector clear instances when memory runs low.
+		 * <br/>Instances are never destroyed, the garbage collector clears them without notice.
+		 */
+		SOFT,
+
+		/**
+		 * Lets the garbage collector clear instances as soon as they are no longer used elsewhere.
+		 * <br/>Instances are never destroyed, the garbage collector clears them without notice.
+		 */
+		WEAK
+	}
+
+	/**
+	 * Soft references without any bounds.
+	 */
+	public static final CachePolicy DEFAULT = new CachePolicy(References.SOFT, Integer.MAX_VALUE, Long.MAX_VALUE, null, Long.MAX_VALUE);
+
+	private CachePolicy(References references, int maxEntries, long maxWeight, ToLongFunction<Object> weigher, long expireAfterAccessNanos) {
+		this.references = references;
+		this.maxEntries = maxEntries;
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+		this.expireAfterAccessNanos = expireAfterAccessNanos;
+	}
+
+	public CachePolicy withReferences(References references) {
+		if (references == null) {
+			throw new IllegalArgumentException("missing references");
+		}
+		return new CachePolicy(references, maxEntries, maxWeight, weigher, expireAfterAccessNanos);
+	}
+
+	/**
+	 * Limits the number of cached instances of all components sharing this policy.
+	 */
+	public CachePolicy withMaxEntries(int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("invalid max entries [" + maxEntries + "]");
+		}
+		return new CachePolicy(references, maxEntries, maxWeight, weigher, expireAfterAccessNanos);
+	}
+
+	/**
+	 * Limits the total weight of cached instances of all components sharing this policy.
+	 *
+	 * @param maxWeight maximum total weight, for example in bytes
+	 * @param weigher computes the weight of a new instance once when it is cached
+	 */
+	public CachePolicy withMaxWeight(long maxWeight, ToLongFunction<Object> weigher) {
+		if (maxWeight < 0 || weigher == null) {
+			throw new IllegalArgumentException("invalid max weight [" + maxWeight + "] or missing weigher");
+		}
+		return new CachePolicy(references, maxEntries, maxWeight, weigher, expireAfterAccessNanos);
+	}
+
+	/**
+	 * Evicts instances not requested for the given time.
+	 */
+	public CachePolicy withExpireAfterAccess(long duration, TimeUnit unit) {
+		if (duration < 0) {
+			throw new IllegalArgumentException("negative duration [" + duration + "]");
+		}
+		return new CachePolicy(references, maxEntries, maxWeight, weigher, unit.toNanos(duration));
+	}
+
+	public References getReferences() {
+		return references;
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * Returns the weigher of cached instances or null if instances are not weighed.
+	 */
+	public ToLongFunction<Object> getWeigher() {
+		return weigher;
+	}
+
+	public long getExpireAfterAccessNanos() {
+		return expireAfterAccessNanos;
+	}
+
+	private final References references;
+	private final int maxEntries;
+	private final long maxWeight;
+	private final ToLongFunction<Object> weigher;
+	private final long expireAfterAccessNanos;
+}
@@ -0,0 +1,490 @@
+package de.voodoosoft.blackcat;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Internal cache of the annotation scan of one class.
+ * <p/>
+ * Each class is scanned only once, no matter how many components or injectors use it.
+ * Metadata of a class is composed from its own declared members and the cached metadata of its superclass.
+ * <br/>The cache is attached to the scanned classes themselves, so it does not keep class loaders alive.
+ * <br/>Classes with a generated {@link MembersInjector} are not scanned by reflection at all.
+ * <br/>Classes listed in a loaded {@link MetadataIndex} only look up their indexed members instead of scanning annotations.
+ */
+class ClassMetadata {
+	private ClassMetadata(Class<?> type) {
+		this.type = type;
+		ClassMetadata superMetadata = null;
+		Class<?> superclass = type.getSuperclass();
+		if (superclass != null && superclass != Object.class) {
+			superMetadata = forType(superclass);
+		}
+
+		List<Injection> injections = new ArrayList<>();
+		MetadataIndex index = ClassMetadata.index;
+		MetadataIndex.ClassEntry entry = index != null ? index.get(type) : null;
+		if (entry == null || !collectMembers(type, entry, injections)) {
+			MembersInjector<?> membersInjector = findMembersInjector(type);
+			if (membersInjector != null) {
+				collectMembers(membersInjector, injections);
+				entry = null;
+			}
+			else {
+				entry = collectMembers(type, injections);
+			}
+		}
+		indexEntry = entry;
+
+		// ancestors are injected last, initialized first and destroyed last
+		if (superMetadata != null) {
+			Collections.addAll(injections, superMetadata.injections);
+			postConstructs.addAll(0, getInherited(postConstructs, superMetadata.postConstructs));
+			resets.addAll(0, getInherited(resets, superMetadata.resets));
+			preDestroys.addAll(getInherited(preDestroys, superMetadata.preDestroys));
+		}
+		this.injections = injections.toArray(new Injection[injections.size()]);
+		postConstruct = chain(postConstructs);
+		reset = chain(resets);
+		preDestroy = chain(preDestroys);
+	}
+
+	/**
+	 * Returns the cached metadata of the given class, scanning it on first use.
+	 */
+	public static ClassMetadata forType(Class<?> type) {
+		return CACHE.get(type);
+	}
+
+	/**
+	 * Creates unresolved injection points for a new component definition.
+	 */
+	public Injection[] createInjections() {
+		Injection[] copies = new Injection[injections.length];
+		for (int i = 0; i < injections.length; i++) {
+			copies[i] = new Injection(injections[i]);
+		}
+		return copies;
+	}
+
+	/**
+	 * Installs the index used for all classes scanned afterwards.
+	 */
+	public static void setIndex(MetadataIndex index) {
+		ClassMetadata.index = index;
+	}
+
+	/**
+	 * Returns the declared members of this class level for persisting them or null if they are generated.
+	 */
+	public MetadataIndex.ClassEntry getIndexEntry() {
+		return indexEntry;
+	}
+
+	public MethodHandle getPostConstruct() {
+		return postConstruct;
+	}
+
+	public MethodHandle getReset() {
+		return reset;
+	}
+
+	public MethodHandle getPreDestroy() {
+		return preDestroy;
+	}
+
+	/**
+	 * Returns the handle of type <code>(Object[])Object</code> of the constructor used for components without provider.
+	 * <br/>This is the constructor annotated with {@link Inject} or else the default constructor.
+	 */
+	public MethodHandle getConstructor() {
+		scanConstructor();
+		return constructor;
+	}
+
+	/**
+	 * Creates unresolved injection points for the parameters of the constructor.
+	 */
+	public Injection[] createConstructorInjections() {
+		scanConstructor();
+		Injection[] copies = new Injection[constructorInjections.length];
+		for (int i = 0; i < constructorInjections.length; i++) {
+			copies[i] = new Injection(constructorInjections[i]);
+		}
+		return copies;
+	}
+
+	/**
+	 * Looks up the constructor on first use, most components are created by providers.
+	 * <br/>Concurrent scans yield equivalent results, so no locking is needed.
+	 */
+	private void scanConstructor() {
+		if (constructor != null) {
+			return;
+		}
+		if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+			throw new RuntimeException("cannot construct abstract component [" + type + "]");
+		}
+		if (type.getEnclosingClass() != null && !Modifier.isStatic(type.getModifiers())) {
+			throw new RuntimeException("cannot construct inner component [" + type + "]");
+		}
+
+		Constructor<?> selected = null;
+		Constructor<?> defaultConstructor = null;
+		for (Constructor<?> candidate : type.getDeclaredConstructors()) {
+			if (candidate.isAnnotationPresent(Inject.class)) {
+				if (selected != null) {
+					throw new RuntimeException("multiple injection constructors in [" + type + "]");
+				}
+				selected = candidate;
+			}
+			else if (candidate.getParameterCount() == 0) {
+				defaultConstructor = candidate;
+			}
+		}
+		if (selected == null) {
+			selected = defaultConstructor;
+		}
+		if (selected == null) {
+			throw new RuntimeException("no injection or default constructor in [" + type + "]");
+		}
+
+		Parameter[] parameters = selected.getParameters();
+		Injection[] injections = new Injection[parameters.length];
+		for (int i = 0; i < parameters.length; i++) {
+			Parameter parameter = parameters[i];
+			Inject injectAnnotation = parameter.getAnnotation(Inject.class);
+			String injectionName = injectAnnotation != null && !"".equals(injectAnnotation.value()) ? injectAnnotation.value() : null;
+			injections[i] = toInjection(null, injectionName, null, parameter.getType(), parameter.getParameterizedType(), selected);
+		}
+
+		try {
+			selected.setAccessible(true);
+			MethodHandle handle = LOOKUP.unreflectConstructor(selected);
+			handle = handle.asType(handle.type().generic()).asSpreader(Object[].class, parameters.length);
+			constructorInjections = injections;
+			constructor = handle;
+		}
+		catch (IllegalAccessException e) {
+			throw new RuntimeException("inaccessible constructor [" + selected + "]", e);
+		}
+	}
+
+	/**
+	 * Collects the declared members of the given class by reflection.
+	 *
+	 * @return names of the collected members for the metadata index
+	 */
+	private MetadataIndex.ClassEntry collectMembers(Class<?> type, List<Injection> injections) {
+		List<String> methodNames = new ArrayList<>();
+		ByteArrayOutputStream callbackKinds = new ByteArrayOutputStream();
+
+		// collect PostConstruct, Reset and PreDestroy methods
+		Method[] methods = type.getDeclaredMethods();
+		for (int i = 0; i < methods.length; i++) {
+			Method method = methods[i];
+			int kinds = 0;
+			if (method.isAnnotationPresent(PostConstruct.class)) {
+				postConstructs.add(toCallback(method));
+				kinds |= MetadataIndex.POST_CONSTRUCT;
+			}
+			if (method.isAnnotationPresent(Reset.class)) {
+				resets.add(toCallback(method));
+				kinds |= MetadataIndex.RESET;
+			}
+			if (method.isAnnotationPresent(PreDestroy.class)) {
+				preDestroys.add(toCallback(method));
+				kinds |= MetadataIndex.PRE_DESTROY;
+			}
+			if (kinds != 0) {
+				methodNames.add(method.getName());
+				callbackKinds.write(kinds);
+			}
+		}
+
+		// collect Inject fields
+		List<String> fieldNames = new ArrayList<>();
+		List<String> injectionNames = new ArrayList<>();
+		Field[] fields = type.getDeclaredFields();
+		for (int i = 0; i < fields.length; i++) {
+			Field field = fields[i];
+			Inject injectAnnotation = field.getAnnotation(Inject.class);
+			if (injectAnnotation != null) {
+				String injectionName = injectAnnotation.value();
+				if ("".equals(injectionName)) {
+					injectionName = null;
+				}
+				injections.add(toInjection(field, injectionName));
+				fieldNames.add(field.getName());
+				injectionNames.add(injectionName);
+			}
+		}
+
+		return new MetadataIndex.ClassEntry(fieldNames.toArray(new String[fieldNames.size()]),
+			injectionNames.toArray(new String[injectionNames.size()]), methodNames.toArray(new String[methodNames.size()]),
+			callbackKinds.toByteArray());
+	}
+
+	/**
+	 * Collects the declared members of the given class from its index entry, looking up only the indexed members.
+	 *
+	 * @return false if any indexed member cannot be found, nothing has been collected then
+	 */
+	private boolean collectMembers(Class<?> type, MetadataIndex.ClassEntry entry, List<Injection> injections) {
+		Field[] fields = new Field[entry.fieldNames.length];
+		Method[] methods = new Method[entry.methodNames.length];
+		try {
+			for (int i = 0; i < fields.length; i++) {
+				fields[i] = type.getDeclaredField(entry.fieldNames[i]);
+			}
+			for (int i = 0; i < methods.length; i++) {
+				methods[i] = type.getDeclaredMethod(entry.methodNames[i]);
+			}
+		}
+		catch (NoSuchFieldException | NoSuchMethodException e) {
+			return false;
+		}
+
+		for (int i = 0; i < methods.length; i++) {
+			Callback callback = toCallback(methods[i]);
+			if ((entry.callbackKinds[i] & MetadataIndex.POST_CONSTRUCT) != 0) {
+				postConstructs.add(callback);
+			}
+			if ((entry.callbackKinds[i] & MetadataIndex.RESET) != 0) {
+				resets.add(callback);
+			}
+			if ((entry.callbackKinds[i] & MetadataIndex.PRE_DESTROY) != 0) {
+				preDestroys.add(callback);
+			}
+		}
+		for (int i = 0; i < fields.length; i++) {
+			injections.add(toInjection(fields[i], entry.injectionNames[i]));
+		}
+		return true;
+	}
+
+	/**
+	 * Collects the declared members of a class from its generated members injector.
+	 */
+	private void collectMembers(MembersInjector<?> membersInjector, List<Injection> injections) {
+		Class<?>[] types = membersInjector.getInjectionTypes();
+		String[] names = membersInjector.getInjectionNames();
+		for (int i = 0; i < types.length; i++) {
+			MethodHandle setter = MethodHandles.insertArguments(INJECT.bindTo(membersInjector), 1, i);
+			injections.add(new Injection(null, names[i], setter, types[i], Injection.Kind.DIRECT));
+		}
+		addCallbacks(postConstructs, membersInjector.getPostConstructNames(), POST_CONSTRUCT.bindTo(membersInjector));
+		addCallbacks(resets, membersInjector.getResetNames(), RESET.bindTo(membersInjector));
+		addCallbacks(preDestroys, membersInjector.getPreDestroyNames(), PRE_DESTROY.bindTo(membersInjector));
+	}
+
+	/**
+	 * Adds one callback per given method name, invoking the generated callback of type <code>(Object, int)void</code> with its index.
+	 */
+	private static void addCallbacks(List<Callback> callbacks, String[] names, MethodHandle invoker) {
+		for (int i = 0; i < names.length; i++) {
+			callbacks.add(new Callback(names[i], MethodHandles.insertArguments(invoker, 1, i)));
+		}
+	}
+
+	/**
+	 * Returns the given ancestor callbacks except those overridden by an own callback of the same kind.
+	 * <br/>Overriding methods are dispatched virtually, so the ancestor callback would run the override a second time.
+	 * Ancestor callbacks overridden by methods without the annotation are kept, they run the override once.
+	 */
+	private static List<Callback> getInherited(List<Callback> ownCallbacks, List<Callback> callbacks) {
+		List<Callback> inherited = new ArrayList<>(callbacks.size());
+		for (Callback callback : callbacks) {
+			if (!isOverridden(ownCallbacks, callback)) {
+				inherited.add(callback);
+			}
+		}
+		return inherited;
+	}
+
+	private static boolean isOverridden(List<Callback> ownCallbacks, Callback callback) {
+		if (callback.name == null) {
+			return false;
+		}
+		for (Callback ownCallback : ownCallbacks) {
+			if (callback.name.equals(ownCallback.name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Combines the given callbacks into one handle of type <code>(Object)void</code> invoking them in list order.
+	 */
+	private static MethodHandle chain(List<Callback> callbacks) {
+		MethodHandle chained = null;
+		for (int i = callbacks.size() - 1; i >= 0; i--) {
+			MethodHandle handle = callbacks.get(i).handle;
+			chained = chained == null ? handle : MethodHandles.foldArguments(chained, handle);
+		}
+		return chained;
+	}
+
+	/**
+	 * Returns the generated members injector of the given class or null if the annotation processor did not run for it.
+	 */
+	private static MembersInjector<?> findMembersInjector(Class<?> type) {
+		try {
+			Class<?> injectorType = Class.forName(type.getName() + MembersInjector.SUFFIX, true, type.getClassLoader());
+			if (!MembersInjector.class.isAssignableFrom(injectorType)) {
+				return null;
+			}
+			return (MembersInjector<?>)injectorType.getConstructor().newInstance();
+		}
+		catch (ClassNotFoundException e) {
+			return null;
+		}
+		catch (ReflectiveOperationException e) {
+			throw new RuntimeException("failed to create members injector for [" + type + "]", e);
+		}
+	}
+
+	private static Injection toInjection(Field field, String name) {
+		return toInjection(field, name, toSetter(field), field.getType(), field.getGenericType(), field);
+	}
+
+	private static Injection toInjection(Field field, String name, MethodHandle setter, Class<?> type, Type genericType, Object member) {
+		if (type == Provider.class) {
+			return new Injection(field, name, setter, getTypeArgument(genericType, 0, member), Injection.Kind.PROVIDER);
+		}
+		if (type == Lazy.class) {
+			return new Injection(field, name, setter, getTypeArgument(genericType, 0, member), Injection.Kind.LAZY);
+		}
+		if (type == List.class) {
+			return new Injection(field, name, setter, getTypeArgument(genericType, 0, member), Injection.Kind.LIST);
+		}
+		if (type == Map.class) {
+			if (getTypeArgument(genericType, 0, member) != String.class) {
+				throw new RuntimeException("map injection [" + member + "] must be keyed by component name");
+			}
+			return new Injection(field, name, setter, getTypeArgument(genericType, 1, member), Injection.Kind.MAP);
+		}
+		if (type.isArray() && !type.getComponentType().isPrimitive()) {
+			return new Injection(field, name, setter, type.getComponentType(), Injection.Kind.ARRAY);
+		}
+		return new Injection(field, name, setter, type, Injection.Kind.DIRECT);
+	}
+
+	/**
+	 * Returns the raw type of the type argument with the given index of the given generic type.
+	 */
+	private static Class<?> getTypeArgument(Type genericType, int index, Object member) {
+		if (genericType instanceof ParameterizedType) {
+			Type argument = ((ParameterizedType)genericType).getActualTypeArguments()[index];
+			if (argument instanceof WildcardType) {
+				argument = ((WildcardType)argument).getUpperBounds()[0];
+			}
+			if (argument instanceof ParameterizedType) {
+				argument = ((ParameterizedType)argument).getRawType();
+			}
+			if (argument instanceof Class) {
+				return (Class<?>)argument;
+			}
+		}
+		throw new RuntimeException("missing type argument for injection [" + member + "]");
+	}
+
+	private static MethodHandle toSetter(Field field) {
+		try {
+			field.setAccessible(true);
+			MethodHandle setter = LOOKUP.unreflectSetter(field);
+			return setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+		}
+		catch (IllegalAccessException e) {
+			throw new RuntimeException("inaccessible injection [" + field + "]", e);
+		}
+	}
+
+	private static Callback toCallback(Method method) {
+		int modifiers = method.getModifiers();
+		boolean overridable = !Modifier.isPrivate(modifiers) && !Modifier.isStatic(modifiers);
+		return new Callback(overridable ? method.getName() : null, toInvoker(method));
+	}
+
+	private static MethodHandle toInvoker(Method method) {
+		try {
+			method.setAccessible(true);
+			MethodHandle invoker = LOOKUP.unreflect(method);
+			if (Modifier.isStatic(method.getModifiers())) {
+				invoker = MethodHandles.dropArguments(invoker, 0, Object.class);
+			}
+			return invoker.asType(MethodType.methodType(void.class, Object.class));
+		}
+		catch (IllegalAccessException e) {
+			throw new RuntimeException("inaccessible callback [" + method + "]", e);
+		}
+	}
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+	private static final MethodHandle INJECT;
+	private static final MethodHandle POST_CONSTRUCT;
+	private static final MethodHandle RESET;
+	private static final MethodHandle PRE_DESTROY;
+
+	static {
+		try {
+			INJECT = LOOKUP.findVirtual(MembersInjector.class, "inject", MethodType.methodType(void.class, Object.class, int.class, Object.class));
+			POST_CONSTRUCT = LOOKUP.findVirtual(MembersInjector.class, "postConstruct", MethodType.methodType(void.class, Object.class, int.class));
+			RESET = LOOKUP.findVirtual(MembersInjector.class, "reset", MethodType.methodType(void.class, Object.class, int.class));
+			PRE_DESTROY = LOOKUP.findVirtual(MembersInjector.class, "preDestroy", MethodType.methodType(void.class, Object.class, int.class));
+		}
+		catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static final ClassValue<ClassMetadata> CACHE = new ClassValue<ClassMetadata>() {
+		@Override
+		protected ClassMetadata computeValue(Class<?> type) {
+			return new ClassMetadata(type);
+		}
+	};
+
+	/**
+	 * Lifecycle method of one class level.
+	 */
+	private static final class Callback {
+		Callback(String name, MethodHandle handle) {
+			this.name = name;
+			this.handle = handle;
+		}
+
+		/** name of an overridable method, null if private or static */
+		final String name;
+		final MethodHandle handle;
+	}
+
+	private static volatile MetadataIndex index;
+
+	private final Class<?> type;
+	private final MetadataIndex.ClassEntry indexEntry;
+	private final Injection[] injections;
+	private volatile Injection[] constructorInjections;
+	private volatile MethodHandle constructor;
+	private final List<Callback> postConstructs = new ArrayList<>();
+	private final List<Callback> resets = new ArrayList<>();
+	private final List<Callback> preDestroys = new ArrayList<>();
+	private final MethodHandle postConstruct;
+	private final MethodHandle reset;
+	private final MethodHandle preDestroy;
+}
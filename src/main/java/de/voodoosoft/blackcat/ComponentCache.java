@@ -0,0 +1,244 @@
+package de.voodoosoft.blackcat;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Internal cache of the instances of components of scope {@link Scope#CACHED} sharing one {@link CachePolicy}.
+ * <p/>
+ * Holds at most one instance per component. Lookups do not lock, they only stamp the access time of the entry.
+ * <br/>Bounds are enforced on insertion by evicting the instances with the oldest access times first, an approximation of
+ * least recently used order since concurrent lookups may stamp their entries while evicting.
+ * <br/>Instances cleared by the garbage collector or expired are dropped when they are encountered.
+ * <br/>Strongly referenced instances are destroyed by invoking their {@link PreDestroy} methods when they are dropped,
+ * after the cache has been unlocked. Softly or weakly referenced instances may be cleared by the garbage collector
+ * at any time without notice, so they are never destroyed.
+ */
+class ComponentCache {
+	public ComponentCache(CachePolicy policy) {
+		this.policy = policy;
+	}
+
+	/**
+	 * Returns the cached instance of the given component or null if there is none.
+	 */
+	public Object get(ComponentDef componentDef) {
+		Entry entry = entries.get(componentDef);
+		if (entry == null) {
+			return null;
+		}
+
+		long now = System.nanoTime();
+		Object component = entry.get();
+		if (component == null || isExpired(entry, now)) {
+			drop(entry);
+			return null;
+		}
+		entry.lastAccess = now;
+		return component;
+	}
+
+	/**
+	 * Caches the given instance and evicts instances exceeding the bounds of the policy.
+	 */
+	public void put(ComponentDef componentDef, Object component) {
+		long weight = policy.getWeigher() != null ? policy.getWeigher().applyAsLong(component) : 0;
+		List<Entry> dropped = null;
+		lock.lock();
+		try {
+			Entry replaced = entries.put(componentDef, toEntry(componentDef, component, weight));
+			totalWeight += weight;
+			if (replaced != null) {
+				totalWeight -= replaced.weight;
+				dropped = add(dropped, replaced);
+			}
+
+			// drop stale instances first, then the least recently used ones
+			long now = System.nanoTime();
+			Iterator<Entry> it = entries.values().iterator();
+			while (it.hasNext()) {
+				Entry entry = it.next();
+				if (entry.get() == null || isExpired(entry, now)) {
+					totalWeight -= entry.weight;
+					it.remove();
+					dropped = add(dropped, entry);
+				}
+			}
+			if (entries.size() > 1 && (entries.size() > policy.getMaxEntries() || totalWeight > policy.getMaxWeight())) {
+				for (Entry entry : getEntriesByAccess()) {
+					if (entries.size() <= 1 || (entries.size() <= policy.getMaxEntries() && totalWeight <= policy.getMaxWeight())) {
+						break;
+					}
+					entries.remove(entry.componentDef);
+					totalWeight -= entry.weight;
+					dropped = add(dropped, entry);
+				}
+			}
+		}
+		finally {
+			lock.unlock();
+			destroy(dropped);
+		}
+	}
+
+	/**
+	 * Drops and destroys the cached instance of the given component.
+	 */
+	public void evict(ComponentDef componentDef) {
+		Entry entry;
+		lock.lock();
+		try {
+			entry = entries.remove(componentDef);
+			if (entry != null) {
+				totalWeight -= entry.weight;
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+		if (entry != null) {
+			destroy(Collections.singletonList(entry));
+		}
+	}
+
+	/**
+	 * Drops and destroys all cached instances, least recently used first.
+	 */
+	public void clear() {
+		List<Entry> dropped;
+		lock.lock();
+		try {
+			dropped = getEntriesByAccess();
+			entries.clear();
+			totalWeight = 0;
+		}
+		finally {
+			lock.unlock();
+		}
+		destroy(dropped);
+	}
+
+	public CachePolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Drops the given cleared or expired entry unless it has been replaced meanwhile.
+	 */
+	private void drop(Entry entry) {
+		boolean removed;
+		lock.lock();
+		try {
+			removed = entries.remove(entry.componentDef, entry);
+			if (removed) {
+				totalWeight -= entry.weight;
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+		if (removed) {
+			destroy(Collections.singletonList(entry));
+		}
+	}
+
+	private List<Entry> getEntriesByAccess() {
+		List<Entry> sorted = new ArrayList<>(entries.values());
+		sorted.sort((entry1, entry2) -> Long.compare(entry1.lastAccess, entry2.lastAccess));
+		return sorted;
+	}
+
+	private static List<Entry> add(List<Entry> dropped, Entry entry) {
+		if (dropped == null) {
+			dropped = new ArrayList<>(2);
+		}
+		dropped.add(entry);
+		return dropped;
+	}
+
+	/**
+	 * Invokes the {@link PreDestroy} methods of the given strongly referenced instances.
+	 * <br/>All instances are destroyed even if some of them fail, the first failure is rethrown afterwards.
+	 */
+	private static void destroy(List<Entry> dropped) {
+		if (dropped == null) {
+			return;
+		}
+		RuntimeException failure = null;
+		for (Entry entry : dropped) {
+			MethodHandle preDestroy = entry.componentDef.getPreDestroy();
+			if (entry.component == null || preDestroy == null) {
+				continue;
+			}
+			try {
+				preDestroy.invokeExact(entry.component);
+			}
+			catch (Throwable e) {
+				RuntimeException destroyFailure = new RuntimeException("preDestroy " + entry.componentDef, e);
+				if (failure == null) {
+					failure = destroyFailure;
+				}
+				else {
+					failure.addSuppressed(destroyFailure);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private boolean isExpired(Entry entry, long now) {
+		return now - entry.lastAccess > policy.getExpireAfterAccessNanos();
+	}
+
+	private Entry toEntry(ComponentDef componentDef, Object component, long weight) {
+		switch (policy.getReferences()) {
+			case WEAK:
+				return new Entry(componentDef, null, new WeakReference<>(component), weight, System.nanoTime());
+			case SOFT:
+				return new Entry(componentDef, null, new SoftReference<>(component), weight, System.nanoTime());
+			default:
+				return new Entry(componentDef, component, null, weight, System.nanoTime());
+		}
+	}
+
+	private static final class Entry {
+		Entry(ComponentDef componentDef, Object component, Reference<Object> reference, long weight, long lastAccess) {
+			this.componentDef = componentDef;
+			this.component = component;
+			this.reference = reference;
+			this.weight = weight;
+			this.lastAccess = lastAccess;
+		}
+
+		/**
+		 * Returns the cached instance or null if it has been cleared by the garbage collector.
+		 */
+		Object get() {
+			return reference != null ? reference.get() : component;
+		}
+
+		final ComponentDef componentDef;
+		/** strongly referenced instance, null if referenced softly or weakly */
+		final Object component;
+		final Reference<Object> reference;
+		final long weight;
+		volatile long lastAccess;
+	}
+
+	private final CachePolicy policy;
+	private final Map<ComponentDef, Entry> entries = new ConcurrentHashMap<>();
+	/** guarded by lock */
+	private long totalWeight;
+	private final ReentrantLock lock = new ReentrantLock();
+}
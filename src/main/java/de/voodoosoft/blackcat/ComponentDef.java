@@ -1,25 +1,53 @@
-
 package de.voodoosoft.blackcat;
 
-import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Internal {@link Injector} class for holding defined components. 
+ * <p/>
+ * Injection points and the post construction callback are compiled into method handles once when the
+ * component is defined, so creating an instance does not need any further reflection.
  */
 class ComponentDef {
 	public ComponentDef(Class<?> type, String name, Provider<?> provider) {
 		this.type = type;
 		this.name = name;
 		this.provider = provider;
-		injections = new ArrayList<>();
+		scope = Scope.PROTOTYPE;
+		injections = NO_INJECTIONS;
+		constructorInjections = NO_INJECTIONS;
+	}
+
+	/**
+	 * Sets the public handle of this component, including its dense index within its {@link Injector}.
+	 */
+	public void setKey(ComponentKey<?> key) {
+		this.key = key;
+		this.id = key.getId();
+	}
+
+	public ComponentKey<?> getKey() {
+		return key;
+	}
+
+	public int getId() {
+		return id;
 	}
 
 	public Provider<?> getProvider() {
 		return provider;
 	}
 
+	/**
+	 * Sets the provider of components created by the injector itself.
+	 */
+	public void setProvider(Provider<?> provider) {
+		this.provider = provider;
+	}
+
 	public Class<?> getType() {
 		return type;
 	}
@@ -28,41 +56,208 @@ class ComponentDef {
 		return name;
 	}
 
-	public List<Injection> getInjections() {
+	public void setInjections(Injection[] injections) {
+		this.injections = injections;
+	}
+
+	public Injection[] getInjections() {
 		return injections;
 	}
 
-	public void setPostConstruct(Method postConstruct) {
+	public void setConstructorInjections(Injection[] constructorInjections) {
+		this.constructorInjections = constructorInjections;
+	}
+
+	/**
+	 * Returns the injection points of the constructor, empty for components created by custom providers.
+	 */
+	public Injection[] getConstructorInjections() {
+		return constructorInjections;
+	}
+
+	/**
+	 * Sets the constructor of type <code>(Object[])Object</code>.
+	 */
+	public void setConstructor(MethodHandle constructor) {
+		this.constructor = constructor;
+	}
+
+	public MethodHandle getConstructor() {
+		return constructor;
+	}
+
+	/**
+	 * Sets the post construction callback of type <code>(Object)void</code>.
+	 */
+	public void setPostConstruct(MethodHandle postConstruct) {
 		this.postConstruct = postConstruct;
 	}
 
-	public Method getPostConstruct() {
+	public MethodHandle getPostConstruct() {
 		return postConstruct;
 	}
 
-	public void setSingleton(boolean singleton) {
-		this.singleton = singleton;
+	/**
+	 * Sets the reset callback of pooled components of type <code>(Object)void</code>.
+	 */
+	public void setReset(MethodHandle reset) {
+		this.reset = reset;
+	}
+
+	public MethodHandle getReset() {
+		return reset;
+	}
+
+	/**
+	 * Sets the destruction callback of singletons of type <code>(Object)void</code>.
+	 */
+	public void setPreDestroy(MethodHandle preDestroy) {
+		this.preDestroy = preDestroy;
+	}
+
+	public MethodHandle getPreDestroy() {
+		return preDestroy;
+	}
+
+	public void setScope(Scope scope) {
+		this.scope = scope;
+	}
+
+	public Scope getScope() {
+		return scope;
 	}
 
 	public boolean isSingleton() {
-		return singleton;
+		return scope == Scope.SINGLETON;
+	}
+
+	public void setPool(ComponentPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Returns the instance pool of components with scope {@link Scope#POOLED}.
+	 */
+	public ComponentPool getPool() {
+		return pool;
+	}
+
+	public void setCache(ComponentCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Returns the instance cache of components with scope {@link Scope#CACHED}.
+	 */
+	public ComponentCache getCache() {
+		return cache;
+	}
+
+	public void setThreadRef(ThreadLocal<Object> threadRef) {
+		this.threadRef = threadRef;
+	}
+
+	/**
+	 * Returns the per-thread instances of components with scope {@link Scope#THREAD}.
+	 */
+	public ThreadLocal<Object> getThreadRef() {
+		return threadRef;
 	}
 
 	public Object getSingletonRef() {
 		return singletonRef;
 	}
 
+	/**
+	 * Publishes the fully initialized singleton.
+	 * <br/>Once set, the singleton is read without locking.
+	 */
 	public void setSingletonRef(Object singletonRef) {
 		this.singletonRef = singletonRef;
 	}
 
+	/**
+	 * Returns the singleton currently being initialized.
+	 * <br/>Must only be called while holding {@link #singletonLock}.
+	 */
+	public Object getPendingSingletonRef() {
+		return pendingSingletonRef;
+	}
+
+	public void setPendingSingletonRef(Object pendingSingletonRef) {
+		this.pendingSingletonRef = pendingSingletonRef;
+	}
+
+	/**
+	 * Returns the asynchronous creation of the singleton currently in progress or null.
+	 */
+	public CompletableFuture<Object> getSingletonFuture() {
+		return singletonFuture;
+	}
+
+	/**
+	 * Atomically replaces the asynchronous creation of the singleton, so concurrent callers agree on one creation.
+	 */
+	public boolean compareAndSetSingletonFuture(CompletableFuture<Object> expected, CompletableFuture<Object> singletonFuture) {
+		return SINGLETON_FUTURE.compareAndSet(this, expected, singletonFuture);
+	}
+
+	/**
+	 * Sets the runtime statistics of this component or null if metrics are disabled.
+	 */
+	public void setMetrics(ComponentMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public ComponentMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Marks this definition as replaced or removed, injection points still resolving to it are looked up again.
+	 */
+	public void retire() {
+		retired = true;
+	}
+
+	public boolean isRetired() {
+		return retired;
+	}
+
+	@Override
+	public String toString() {
+		if (name == null) {
+			return "[" + type.getName() + "]";
+		}
+		return "[" + type.getName() + "] named [" + name + "]";
+	}
+
+	private static final Injection[] NO_INJECTIONS = new Injection[0];
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<ComponentDef, CompletableFuture> SINGLETON_FUTURE =
+		AtomicReferenceFieldUpdater.newUpdater(ComponentDef.class, CompletableFuture.class, "singletonFuture");
+
+	private ComponentKey<?> key;
+	private int id;
 	private Class<?> type;
 	private String name;
-	private List<Injection> injections;
-	private Method postConstruct;
+	private Injection[] injections;
+	private Injection[] constructorInjections;
+	private MethodHandle constructor;
+	private MethodHandle postConstruct;
+	private MethodHandle reset;
+	private MethodHandle preDestroy;
 	private Provider<?> provider;
-	private boolean singleton;
-	private Object singletonRef;
+	private Scope scope;
+	private ComponentPool pool;
+	private ComponentCache cache;
+	private ThreadLocal<Object> threadRef;
+	private ComponentMetrics metrics;
+	private volatile Object singletonRef;
+	private Object pendingSingletonRef;
+	private volatile CompletableFuture<Object> singletonFuture;
+	private volatile boolean retired;
 
-	final Object singletonLock = new Object();
+	final ReentrantLock singletonLock = new ReentrantLock();
 }
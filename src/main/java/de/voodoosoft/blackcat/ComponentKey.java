@@ -0,0 +1,51 @@
+package de.voodoosoft.blackcat;
+
+/**
+ * Typed handle of one component definition.
+ * <p/>
+ * Keys are returned by {@link Injector#defineComponent} and {@link Injector#getComponentKey}.
+ * Requesting components by key skips all type and name lookups, keys can be kept in static final fields:
+ * <pre>
+ * {@code
+ * static final ComponentKey<Bass> BASS = injector.defineComponent(Bass.class, Bass::new);
+ *
+ * Bass bass = injector.getComponent(BASS);
+ * }
+ * </pre>
+ *
+ * @param <T> component type
+ */
+public final class ComponentKey<T> {
+	ComponentKey(int id, Class<T> type, String name) {
+		this.id = id;
+		this.type = type;
+		this.name = name;
+	}
+
+	/**
+	 * Returns the dense index of the component within its injector.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	public Class<T> getType() {
+		return type;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		if (name == null) {
+			return "#" + id + " [" + type.getName() + "]";
+		}
+		return "#" + id + " [" + type.getName() + "] named [" + name + "]";
+	}
+
+	private final int id;
+	private final Class<T> type;
+	private final String name;
+}
@@ -0,0 +1,102 @@
+package de.voodoosoft.blackcat;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime statistics of one component definition.
+ * <p/>
+ * Collected only while metrics are enabled, see {@link Injector#setMetricsEnabled(boolean)}.
+ * <br/>Creation times include the creation of all dependencies created along with the component.
+ */
+public class ComponentMetrics {
+	ComponentMetrics(Class<?> type, String name, Scope scope) {
+		this.type = type;
+		this.name = name;
+		this.scope = scope;
+		lookups = new LongAdder();
+		singletonHits = new LongAdder();
+		creationTime = new LatencyHistogram();
+		providerTime = new LatencyHistogram();
+		postConstructTime = new LatencyHistogram();
+		lockWaitTime = new LatencyHistogram();
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Scope getScope() {
+		return scope;
+	}
+
+	/**
+	 * Returns how often the component has been requested, either directly or for injection.
+	 */
+	public long getLookupCount() {
+		return lookups.sum();
+	}
+
+	/**
+	 * Returns how often an existing singleton has been returned without creating it.
+	 */
+	public long getSingletonHitCount() {
+		return singletonHits.sum();
+	}
+
+	/**
+	 * Returns the number of created instances.
+	 */
+	public long getCreatedCount() {
+		return creationTime.getCount();
+	}
+
+	/**
+	 * Returns the time for creating instances, including provider, injections and post construction.
+	 */
+	public LatencyHistogram getCreationTime() {
+		return creationTime;
+	}
+
+	public LatencyHistogram getProviderTime() {
+		return providerTime;
+	}
+
+	public LatencyHistogram getPostConstructTime() {
+		return postConstructTime;
+	}
+
+	/**
+	 * Returns the time spent waiting for other threads creating the same singleton.
+	 */
+	public LatencyHistogram getLockWaitTime() {
+		return lockWaitTime;
+	}
+
+	void recordLookup() {
+		lookups.increment();
+	}
+
+	void recordSingletonHit() {
+		singletonHits.increment();
+	}
+
+	@Override
+	public String toString() {
+		return (name == null ? type.getName() : type.getName() + " [" + name + "]") + " " + scope
+			+ ": lookups=" + getLookupCount() + " created=" + getCreatedCount() + " creation(" + creationTime + ")";
+	}
+
+	private final Class<?> type;
+	private final String name;
+	private final Scope scope;
+	private final LongAdder lookups;
+	private final LongAdder singletonHits;
+	private final LatencyHistogram creationTime;
+	private final LatencyHistogram providerTime;
+	private final LatencyHistogram postConstructTime;
+	private final LatencyHistogram lockWaitTime;
+}
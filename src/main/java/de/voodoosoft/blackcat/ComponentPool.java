@@ -0,0 +1,87 @@
+package de.voodoosoft.blackcat;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Internal bounded pool of released component instances.
+ * <p/>
+ * Instances are handed out last in, first out, so recently used objects are re-used first.
+ * Neither acquiring nor releasing allocates memory.
+ */
+class ComponentPool {
+	public ComponentPool(int capacity) {
+		instances = new Object[capacity];
+	}
+
+	/**
+	 * Returns a pooled instance or null if the pool is empty.
+	 */
+	public Object acquire() {
+		lock.lock();
+		try {
+			if (size == 0) {
+				return null;
+			}
+			Object instance = instances[--size];
+			instances[size] = null;
+			return instance;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns true if the given instance is currently held by the pool.
+	 */
+	public boolean contains(Object instance) {
+		lock.lock();
+		try {
+			return indexOf(instance) >= 0;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Puts the given instance back into the pool.
+	 *
+	 * @return false if the pool is full and the instance was dropped
+	 * @throws RuntimeException if the instance is already held by the pool
+	 */
+	public boolean release(Object instance) {
+		lock.lock();
+		try {
+			// a second release would hand out the same instance twice
+			if (indexOf(instance) >= 0) {
+				throw new RuntimeException("component already released [" + instance + "]");
+			}
+			if (size == instances.length) {
+				return false;
+			}
+			instances[size++] = instance;
+			return true;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the index of the given instance by identity or -1, must be called while holding the lock.
+	 * <br/>Pools are small, so a linear scan is cheaper than maintaining a set.
+	 */
+	private int indexOf(Object instance) {
+		for (int i = 0; i < size; i++) {
+			if (instances[i] == instance) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private final Object[] instances;
+	private int size;
+	private final ReentrantLock lock = new ReentrantLock();
+}
@@ -0,0 +1,52 @@
+package de.voodoosoft.blackcat;
+
+import java.util.Arrays;
+
+/**
+ * Internal per-thread cache of components with scope {@link Scope#FRAME}, indexed by component id.
+ * <p/>
+ * The instance array is kept between scopes, so beginning and ending a scope does not allocate memory.
+ * <br/>Each instance is kept along with its definition, so instances of cleared definitions are never handed out
+ * for new definitions reusing their ids.
+ */
+class ComponentScope {
+	public boolean isActive() {
+		return active;
+	}
+
+	public void begin() {
+		if (active) {
+			throw new RuntimeException("scope already active");
+		}
+		active = true;
+	}
+
+	public void end() {
+		if (!active) {
+			throw new RuntimeException("no active scope");
+		}
+		Arrays.fill(instances, null);
+		Arrays.fill(componentDefs, null);
+		active = false;
+	}
+
+	public Object get(ComponentDef componentDef) {
+		int id = componentDef.getId();
+		return id < instances.length && componentDefs[id] == componentDef ? instances[id] : null;
+	}
+
+	public void put(ComponentDef componentDef, Object instance) {
+		int id = componentDef.getId();
+		if (id >= instances.length) {
+			int length = Math.max(id + 1, instances.length * 2);
+			instances = Arrays.copyOf(instances, length);
+			componentDefs = Arrays.copyOf(componentDefs, length);
+		}
+		instances[id] = instance;
+		componentDefs[id] = componentDef;
+	}
+
+	private Object[] instances = new Object[16];
+	private ComponentDef[] componentDefs = new ComponentDef[16];
+	private boolean active;
+}
@@ -0,0 +1,43 @@
+package de.voodoosoft.blackcat;
+
+/**
+ * Internal hooks for the Java Flight Recorder events of the {@link Injector}.
+ * <p/>
+ * The events are implemented by <code>FlightRecorderEvents</code>, which is compiled separately from the main classes
+ * because it depends on <code>jdk.jfr</code>. This class does not, so the injector still runs on Java 8.
+ * <br/>Event objects are handed to the injector as plain objects. Begin methods return null while the respective
+ * event is not recorded, end methods must only be called for events returned by begin methods.
+ */
+abstract class FlightRecorder {
+	/**
+	 * Returns the Flight Recorder events or null if the runtime does not support custom events.
+	 * <br/>Only loads the events after checking for the presence of <code>jdk.jfr</code>.
+	 */
+	static FlightRecorder load() {
+		ClassLoader classLoader = FlightRecorder.class.getClassLoader();
+		try {
+			Class.forName("jdk.jfr.Event", false, classLoader);
+			Class<?> eventsType = Class.forName(FlightRecorder.class.getName() + "Events", true, classLoader);
+			return (FlightRecorder)eventsType.getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	public abstract Object beginCreation();
+
+	public abstract void endCreation(Object event, ComponentDef componentDef);
+
+	public abstract Object beginInjection();
+
+	public abstract void endInjection(Object event, ComponentDef componentDef);
+
+	public abstract Object beginPostConstruct();
+
+	public abstract void endPostConstruct(Object event, ComponentDef componentDef);
+
+	public abstract Object beginDefinition();
+
+	public abstract void endDefinition(Object event, ComponentDef componentDef);
+}
@@ -9,9 +9,10 @@ import java.lang.annotation.Target;
 
 
 /**
- * Marks a field as target for dependency injection.
+ * Marks a field or constructor as target for dependency injection.
+ * <br/>Constructor parameters may be annotated as well for injecting named components.
  */
-@Target(ElementType.FIELD)
+@Target({ElementType.FIELD, ElementType.CONSTRUCTOR, ElementType.PARAMETER})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Inject {
 	String value() default "";
@@ -1,17 +1,65 @@
-
 package de.voodoosoft.blackcat;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 
 /**
  * Internal class for holding injection points.
  */
 class Injection {
-	public Injection(Field field, String name) {
+	/**
+	 * Defines how the dependency is handed to the injection point.
+	 */
+	enum Kind {
+		/**
+		 * Field of the dependency type.
+		 */
+		DIRECT,
+
+		/**
+		 * Field of type {@link Provider}, requesting the dependency on each call.
+		 */
+		PROVIDER,
+
+		/**
+		 * Field of type {@link Lazy}, requesting the dependency on first use.
+		 */
+		LAZY,
+
+		/**
+		 * Field of type {@link java.util.List}, holding all components of the dependency type.
+		 */
+		LIST,
+
+		/**
+		 * Array field holding all components of the dependency type.
+		 */
+		ARRAY,
+
+		/**
+		 * Field of type {@link java.util.Map}, holding all named components of the dependency type by name.
+		 */
+		MAP
+	}
+
+	public Injection(Field field, String name, MethodHandle setter, Class<?> type, Kind kind) {
 		this.field = field;
 		this.name = name;
+		this.setter = setter;
+		this.type = type;
+		this.kind = kind;
 	}
 
+	/**
+	 * Creates an unresolved copy of the given injection point.
+	 */
+	public Injection(Injection template) {
+		this(template.field, template.name, template.setter, template.type, template.kind);
+	}
+
+	/**
+	 * Returns the injected field or null if the injection point is set by a generated {@link MembersInjector}.
+	 */
 	public Field getField() {
 		return field;
 	}
@@ -20,15 +68,101 @@ class Injection {
 		return name;
 	}
 
-	public void setComponentDef(ComponentDef componentDef) {
-		this.componentDef = componentDef;
+	/**
+	 * Returns the type of the injected dependency.
+	 * <br/>Differs from the field type for {@link Provider}, {@link Lazy} and collection injections.
+	 */
+	public Class<?> getType() {
+		return type;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Returns true if the dependency must exist when the component is created.
+	 */
+	public boolean isEager() {
+		return kind != Kind.PROVIDER && kind != Kind.LAZY;
+	}
+
+	/**
+	 * Returns true if all components of the dependency type are injected.
+	 */
+	public boolean isMultiple() {
+		return kind == Kind.LIST || kind == Kind.ARRAY || kind == Kind.MAP;
+	}
+
+	/**
+	 * Returns the pre-bound field setter of type <code>(Object, Object)void</code>.
+	 */
+	public MethodHandle getSetter() {
+		return setter;
+	}
+
+	/**
+	 * Publishes the resolved dependencies of this injection point.
+	 * <br/>All parts of a resolution are published at once, so concurrent readers never see a partial resolution.
+	 */
+	public void setResolution(Resolution resolution) {
+		this.resolution = resolution;
+	}
+
+	/**
+	 * Returns the resolved dependencies or null if they have not been looked up yet.
+	 */
+	public Resolution getResolution() {
+		return resolution;
 	}
-	
-	public ComponentDef getComponentDef() {
-		return componentDef;
+
+	/**
+	 * Drops all resolved dependencies, so they are looked up again on next use.
+	 */
+	public void unresolve() {
+		resolution = null;
 	}
-	
+
+	/**
+	 * Immutable result of looking up the dependencies of an injection point.
+	 */
+	static final class Resolution {
+		Resolution(ComponentDef componentDef, ComponentDef[] componentDefs, Provider<?> provider) {
+			this.componentDef = componentDef;
+			this.componentDefs = componentDefs;
+			this.provider = provider;
+		}
+
+		/**
+		 * Returns the resolved dependency or null for injections of all components of a type.
+		 */
+		public ComponentDef getComponentDef() {
+			return componentDef;
+		}
+
+		/**
+		 * Returns all resolved dependencies, a single one unless the injection point is {@link Injection#isMultiple() multiple}.
+		 */
+		public ComponentDef[] getComponentDefs() {
+			return componentDefs;
+		}
+
+		/**
+		 * Returns the provider bound to the resolved dependency for {@link Kind#PROVIDER} and {@link Kind#LAZY} injections.
+		 */
+		public Provider<?> getProvider() {
+			return provider;
+		}
+
+		private final ComponentDef componentDef;
+		private final ComponentDef[] componentDefs;
+		private final Provider<?> provider;
+	}
+
 	private Field field;
 	private String name;
-	private ComponentDef componentDef;
+	private MethodHandle setter;
+	private Class<?> type;
+	private Kind kind;
+	private volatile Resolution resolution;
 }
@@ -1,24 +1,50 @@
 
 package de.voodoosoft.blackcat;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Array;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 
 /**
  * Supplies components and injects defined dependencies.
  * <p/>
- * Component classes must be previously be registered by calling {@link #defineComponent} and have a default constructor.
- * <br/>Dependencies are marked with {@link Inject} field annotations.
+ * Component classes must be previously be registered by calling {@link #defineComponent}.
+ * <br/>Dependencies are marked with {@link Inject} field or constructor annotations.
  * <br/>Dependency injections can be defined recursively.
- * <br/>Components should not be defined from multiple threads at the same time, but may be requested concurrently.
+ * <br/>Components may be defined and requested from multiple threads concurrently.
+ * Lookups never lock, definitions only lock briefly for registering the scanned component.
+ * <br/>Singletons are created once under a lock, afterwards they are returned without any locking.
+ * <br/>The lifecycle of component instances is defined by their {@link Scope}.
  * <br/>All components should have been defined before starting to request components.
+ * Calling {@link #freeze()} enforces this rule and validates all definitions up front.
  * <br/>The {@link PostConstruct} annotation can be used for additional initialization after objects have been created.
+ * <br/>Singletons can release their resources in {@link PreDestroy} methods, invoked when the injector is closed.
+ * <br/>Until frozen, single definitions can be replaced or removed, which only affects the components depending on them.
  *
  * <p/>Example:
  * <pre>
@@ -68,7 +94,7 @@ import java.util.Map;
  * @see Provider
  * @see Inject
  */
-public class Injector {
+public class Injector implements AutoCloseable {
 	private static final class Holder {
 		static final Injector injector = new Injector();
 	}
@@ -77,9 +103,24 @@ public class Injector {
 	 * Creates a new injector.
 	 */
 	public Injector() {
-		unnamedComponentsByType = new HashMap<>();
-		componentsByName = new HashMap<>();
-		unnamedComponents = new ArrayList<>();
+		this(null);
+	}
+
+	private Injector(Injector parent) {
+		this.parent = parent;
+		unnamedComponentsByType = new ConcurrentHashMap<>();
+		componentsByName = new ConcurrentHashMap<>();
+		componentsByAssignableType = new ConcurrentHashMap<>();
+		if (parent != null) {
+			components = parent.components;
+			poolCapacity = parent.poolCapacity;
+			cache = new ComponentCache(parent.getCachePolicy());
+			metricsEnabled = parent.metricsEnabled;
+		}
+		else {
+			components = NO_COMPONENTS;
+		}
+		firstComponentId = components.length;
 	}
 
 	/**
@@ -93,10 +134,326 @@ public class Injector {
 		return Holder.injector;
 	}
 
+	/**
+	 * Removes all definitions of this injector, inherited definitions are kept.
+	 * <p/>Singletons and cached instances created by this injector are destroyed first, like by {@link #close()}.
+	 * Instances of scope {@link Scope#THREAD} are dropped for the calling thread, other threads drop them once
+	 * their removed definitions are garbage collected. Instances of scope {@link Scope#FRAME} are never handed out
+	 * for later definitions.
+	 * <br/>All definitions are removed even if some destruction fails, the first failure is rethrown afterwards.
+	 *
+	 * @throws RuntimeException if any destruction callback failed
+	 */
 	public void clear() {
-		unnamedComponentsByType.clear();
-		componentsByName.clear();
-		unnamedComponents.clear();
+		definitionLock.lock();
+		try {
+			checkNotFrozen();
+			RuntimeException failure = null;
+			try {
+				close();
+			}
+			catch (RuntimeException e) {
+				failure = e;
+			}
+
+			ComponentDef[] defs = components;
+			for (int id = 0; id < defs.length; id++) {
+				if (defs[id] != null && defs[id].getThreadRef() != null && isOwnComponentDef(defs[id])) {
+					defs[id].getThreadRef().remove();
+				}
+			}
+			unnamedComponentsByType.clear();
+			componentsByName.clear();
+			componentsByAssignableType.clear();
+			components = parent != null ? parent.components : NO_COMPONENTS;
+			dependentsByComponent.clear();
+			collectionsByType.clear();
+			cycles = new ConcurrentHashMap<>();
+			membersPlans = newMembersPlans();
+			membersPlanTypes.clear();
+			if (failure != null) {
+				throw failure;
+			}
+		}
+		finally {
+			definitionLock.unlock();
+		}
+	}
+
+	/**
+	 * Creates a child injector sharing all definitions of this injector.
+	 * <p/>The child resolves components not defined by itself through this injector, including its singletons.
+	 * Components defined by the child take precedence and are not visible to this injector.
+	 * <br/>Inherited components depending on a definition overridden by the child, directly or through other inherited
+	 * components, are copied into the child when the override is defined. Copies inject the overrides and are
+	 * created and destroyed by the child, so the child gets its own singletons of them.
+	 * <br/>Keys of this injector remain valid for the child.
+	 * <br/>This injector must have been {@link #freeze() frozen} by the caller, so the shared definitions cannot change
+	 * anymore. It is not frozen implicitly, as that would silently end its own definition phase.
+	 * Creating a child is cheap, no metadata is scanned and no definition is copied until the child overrides one.
+	 *
+	 * @return new child injector
+	 * @throws RuntimeException if this injector has not been frozen
+	 */
+	public Injector createChild() {
+		if (!frozen) {
+			throw new RuntimeException("injector must be frozen before creating child injectors");
+		}
+		return new Injector(this);
+	}
+
+	/**
+	 * Returns the injector this injector has been created by or null.
+	 */
+	public Injector getParent() {
+		return parent;
+	}
+
+	/**
+	 * Seals this injector after all components have been defined.
+	 * <p/>Every injection point is resolved immediately and all missing or ambiguous dependencies as well as
+	 * cyclic dependencies are reported at once.
+	 * <br/>Cycles are allowed only through field injections into a singleton, which is visible to its own
+	 * dependencies once constructed.
+	 * <br/>Afterwards, components can no longer be defined or cleared.
+	 *
+	 * @throws RuntimeException if any injection cannot be resolved
+	 */
+	public void freeze() {
+		if (frozen) {
+			return;
+		}
+		definitionLock.lock();
+		try {
+			doFreeze();
+		}
+		finally {
+			definitionLock.unlock();
+		}
+	}
+
+	private void doFreeze() {
+		if (frozen) {
+			return;
+		}
+
+		// resolve all injection points, inherited components have been resolved by the parent
+		List<String> problems = new ArrayList<>();
+		ComponentDef[] defs = components;
+		for (int id = 0; id < defs.length; id++) {
+			if (defs[id] != null && isOwnComponentDef(defs[id])) {
+				resolveInjections(defs[id], defs[id].getConstructorInjections(), problems);
+				resolveInjections(defs[id], defs[id].getInjections(), problems);
+			}
+		}
+
+		// cycles not broken by a singleton would recurse endlessly
+		if (problems.isEmpty()) {
+			Set<ComponentDef> checked = new HashSet<>();
+			List<ComponentDef> path = new ArrayList<>();
+			for (int id = 0; id < defs.length; id++) {
+				if (defs[id] != null && isOwnComponentDef(defs[id])) {
+					checkCycles(defs[id], path, checked, problems);
+				}
+			}
+		}
+
+		if (!problems.isEmpty()) {
+			StringBuilder msg = new StringBuilder("invalid component definitions:");
+			for (String problem : problems) {
+				msg.append("\n").append(problem);
+			}
+			throw new RuntimeException(msg.toString());
+		}
+
+		frozen = true;
+		dependentsByComponent.clear();
+		collectionsByType.clear();
+	}
+
+	private void resolveInjections(ComponentDef componentDef, Injection[] injections, List<String> problems) {
+		for (int i = 0; i < injections.length; i++) {
+			try {
+				resolveInjection(componentDef, injections[i]);
+			}
+			catch (AmbigousComponentException e) {
+				problems.add(e.getMessage() + " for injection into " + componentDef);
+			}
+			catch (RuntimeException e) {
+				problems.add(e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Returns true if {@link #freeze()} has been called.
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * Eagerly creates all singletons, independent singletons concurrently.
+	 * <p/>Singletons are created in dependency order using the given executor: a singleton is created
+	 * only after all singletons it depends on, directly or through other components, have been created
+	 * and post-constructed.
+	 * <br/>All injection points are resolved immediately, unknown dependencies are reported by this method.
+	 * Singletons referring to each other in cycles are created together.
+	 *
+	 * @param executor executor running the creation of singletons
+	 * @return future completed when all singletons have been created
+	 */
+	public CompletableFuture<Void> initializeSingletons(Executor executor) {
+		// collect singletons and their singleton dependencies
+		Map<ComponentDef, List<ComponentDef>> dependenciesBySingleton = new LinkedHashMap<>();
+		for (ComponentDef componentDef : components) {
+			if (componentDef != null && componentDef.isSingleton()) {
+				List<ComponentDef> dependencies = new ArrayList<>();
+				collectSingletonDependencies(componentDef, dependencies, new HashSet<>());
+				dependenciesBySingleton.put(componentDef, dependencies);
+			}
+		}
+
+		Map<ComponentDef, CompletableFuture<Void>> futures = new HashMap<>();
+		Set<ComponentDef> path = new HashSet<>();
+		for (ComponentDef componentDef : dependenciesBySingleton.keySet()) {
+			scheduleSingleton(componentDef, dependenciesBySingleton, futures, path, executor);
+		}
+
+		return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[futures.size()]));
+	}
+
+	/**
+	 * Destroys all singletons created by this injector in reverse creation order.
+	 * <p/>Dependencies are always created before the singletons depending on them, so every singleton is destroyed
+	 * before its dependencies by invoking its {@link PreDestroy} methods.
+	 * <br/>Strongly cached instances of components of scope {@link Scope#CACHED} are destroyed first, they must not be
+	 * injected into singletons anyway.
+	 * <br/>All singletons are destroyed even if some of them fail, the first failure is rethrown afterwards.
+	 * <br/>Singletons of inherited components are left to the parent injector.
+	 * Components should not be requested while or after closing the injector.
+	 *
+	 * @throws RuntimeException if any destruction callback failed
+	 */
+	@Override
+	public void close() {
+		RuntimeException failure = null;
+		try {
+			clearCaches();
+		}
+		catch (RuntimeException e) {
+			failure = e;
+		}
+		for (ComponentDef componentDef = createdSingletons.pollLast(); componentDef != null; componentDef = createdSingletons.pollLast()) {
+			try {
+				destroySingleton(componentDef);
+			}
+			catch (RuntimeException e) {
+				if (failure == null) {
+					failure = e;
+				}
+				else {
+					failure.addSuppressed(e);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Destroys all singletons created by this injector, independent singletons concurrently.
+	 * <p/>A singleton is destroyed only after all singletons depending on it, directly or through other components,
+	 * have been destroyed.
+	 * <br/>Strongly cached instances of components of scope {@link Scope#CACHED} are destroyed before all singletons.
+	 * <br/>All singletons are destroyed even if some of them fail.
+	 *
+	 * @see #close()
+	 *
+	 * @param executor executor running the destruction of singletons
+	 * @return future completed when all singletons have been destroyed, exceptionally if any destruction failed
+	 */
+	public CompletableFuture<Void> close(Executor executor) {
+		List<ComponentDef> singletons = new ArrayList<>();
+		for (ComponentDef componentDef = createdSingletons.pollLast(); componentDef != null; componentDef = createdSingletons.pollLast()) {
+			singletons.add(componentDef);
+		}
+
+		// invert the singleton dependencies
+		Map<ComponentDef, List<ComponentDef>> dependentsBySingleton = new LinkedHashMap<>();
+		for (ComponentDef componentDef : singletons) {
+			dependentsBySingleton.put(componentDef, new ArrayList<>());
+		}
+		for (ComponentDef componentDef : singletons) {
+			List<ComponentDef> dependencies = new ArrayList<>();
+			collectSingletonDependencies(componentDef, dependencies, new HashSet<>());
+			for (ComponentDef dependency : dependencies) {
+				List<ComponentDef> dependents = dependentsBySingleton.get(dependency);
+				if (dependents != null && dependency != componentDef) {
+					dependents.add(componentDef);
+				}
+			}
+		}
+
+		CompletableFuture<Void> cachesCleared = CompletableFuture.runAsync(this::clearCaches, executor);
+		Map<ComponentDef, CompletableFuture<Void>> futures = new HashMap<>();
+		Set<ComponentDef> path = new HashSet<>();
+		for (ComponentDef componentDef : dependentsBySingleton.keySet()) {
+			scheduleDestruction(componentDef, dependentsBySingleton, futures, path, cachesCleared, executor);
+		}
+
+		List<CompletableFuture<Void>> allFutures = new ArrayList<>(futures.values());
+		allFutures.add(cachesCleared);
+		return CompletableFuture.allOf(allFutures.toArray(new CompletableFuture<?>[allFutures.size()]));
+	}
+
+	/**
+	 * Switches collection of runtime statistics on or off.
+	 * <br/>Enabling metrics resets all previously collected statistics.
+	 * While disabled, the only overhead is one field read per request.
+	 *
+	 * @see #getMetrics()
+	 *
+	 * @param enabled true to collect statistics
+	 */
+	public void setMetricsEnabled(boolean enabled) {
+		definitionLock.lock();
+		try {
+			metricsEnabled = enabled;
+			ComponentDef[] defs = components;
+			for (int id = 0; id < defs.length; id++) {
+				if (defs[id] != null && isOwnComponentDef(defs[id])) {
+					defs[id].setMetrics(createMetrics(defs[id]));
+				}
+			}
+		}
+		finally {
+			definitionLock.unlock();
+		}
+	}
+
+	public boolean isMetricsEnabled() {
+		return metricsEnabled;
+	}
+
+	/**
+	 * Returns runtime statistics for all components defined by this injector in definition order.
+	 * <br/>Includes inherited components copied because of overrides.
+	 *
+	 * @see #setMetricsEnabled(boolean)
+	 *
+	 * @return statistics or an empty list if metrics are disabled
+	 */
+	public List<ComponentMetrics> getMetrics() {
+		List<ComponentMetrics> metrics = new ArrayList<>();
+		ComponentDef[] defs = components;
+		for (int id = 0; id < defs.length; id++) {
+			if (defs[id] != null && defs[id].getMetrics() != null && isOwnComponentDef(defs[id])) {
+				metrics.add(defs[id].getMetrics());
+			}
+		}
+		return metrics;
 	}
 
 	/**
@@ -111,13 +468,29 @@ public class Injector {
 	 * @param singleton true if only one object of the given class will ever created
 	 * @param provider component provider
 	 * @param <T> component type
+	 * @return key for requesting the component
 	 */
-	public <T> void defineComponent(Class<T> type, boolean singleton, Provider<T> provider) {
-		doDefineComponent(type, null, provider, singleton);
+	public <T> ComponentKey<T> defineComponent(Class<T> type, boolean singleton, Provider<T> provider) {
+		return doDefineComponent(type, null, provider, toScope(singleton));
+	}
+
+	public <T> ComponentKey<T> defineComponent(Class<T> type, Provider<T> provider) {
+		return doDefineComponent(type, null, provider, Scope.PROTOTYPE);
 	}
 
-	public <T> void defineComponent(Class<T> type, Provider<T> provider) {
-		doDefineComponent(type, null, provider, false);
+	/**
+	 * Adds the given class to the list of managed classes with the given lifecycle.
+	 *
+	 * @see #defineComponent(Class, boolean, Provider)
+	 *
+	 * @param type component class
+	 * @param scope lifecycle of component instances
+	 * @param provider component provider
+	 * @param <T> component type
+	 * @return key for requesting the component
+	 */
+	public <T> ComponentKey<T> defineComponent(Class<T> type, Scope scope, Provider<T> provider) {
+		return doDefineComponent(type, null, provider, scope);
 	}
 
 	/**
@@ -134,13 +507,266 @@ public class Injector {
 	 * @param singleton true if only one object of the given class will ever created
 	 * @param provider component provider
 	 * @param <T> component type
+	 * @return key for requesting the component
+	 */
+	public <T> ComponentKey<T> defineComponent(Class<T> type, String name, boolean singleton, Provider<T> provider) {
+		return doDefineComponent(type, name, provider, toScope(singleton));
+	}
+
+	public <T> ComponentKey<T> defineComponent(Class<T> type, String name, Provider<T> provider) {
+		return doDefineComponent(type, name, provider, Scope.PROTOTYPE);
+	}
+
+	/**
+	 * Registers a named component with the given lifecycle.
+	 *
+	 * @see #defineComponent(Class, String, boolean, Provider)
+	 *
+	 * @param type component class
+	 * @param name dependency name
+	 * @param scope lifecycle of component instances
+	 * @param provider component provider
+	 * @param <T> component type
+	 * @return key for requesting the component
+	 */
+	public <T> ComponentKey<T> defineComponent(Class<T> type, String name, Scope scope, Provider<T> provider) {
+		return doDefineComponent(type, name, provider, scope);
+	}
+
+	/**
+	 * Adds the given class to the list of managed classes, created by the injector itself.
+	 * <br/>Instances are created by the constructor annotated with {@link Inject} or else the default constructor.
+	 * Constructor parameters are resolved like injected fields, so dependencies can be assigned to final fields.
+	 *
+	 * @see #defineComponent(Class, boolean, Provider)
+	 *
+	 * @param type component class
+	 * @param <T> component type
+	 * @return key for requesting the component
+	 */
+	public <T> ComponentKey<T> defineComponent(Class<T> type) {
+		return doDefineComponent(type, null, null, Scope.PROTOTYPE);
+	}
+
+	public <T> ComponentKey<T> defineComponent(Class<T> type, Scope scope) {
+		return doDefineComponent(type, null, null, scope);
+	}
+
+	/**
+	 * Registers a named component, created by the injector itself.
+	 *
+	 * @see #defineComponent(Class)
+	 *
+	 * @param type component class
+	 * @param name dependency name
+	 * @param scope lifecycle of component instances
+	 * @param <T> component type
+	 * @return key for requesting the component
+	 */
+	public <T> ComponentKey<T> defineComponent(Class<T> type, String name, Scope scope) {
+		return doDefineComponent(type, name, null, scope);
+	}
+
+	public <T> ComponentKey<T> defineComponent(Class<T> type, String name) {
+		return doDefineComponent(type, name, null, Scope.PROTOTYPE);
+	}
+
+	/**
+	 * Replaces the definition of the unnamed component of the given type, for example when reloading configurations.
+	 * <p/>Only injection points which have been resolved to the replaced definition look up their dependency again,
+	 * all other components keep their resolved dependencies. The key of the component remains valid.
+	 * <br/>Instances created before are not affected. Singletons of the replaced definition stay referenced by their
+	 * dependents and are still destroyed when the injector is closed.
+	 * <br/>Components requested while redefining may still be created from the replaced definition.
+	 *
+	 * @see #removeComponent(Class)
+	 *
+	 * @param type component class
+	 * @param scope lifecycle of component instances
+	 * @param provider component provider
+	 * @param <T> component type
+	 * @return key for requesting the component
+	 * @throws RuntimeException if this injector is frozen or does not define the component itself
+	 */
+	public <T> ComponentKey<T> redefineComponent(Class<T> type, Scope scope, Provider<T> provider) {
+		return doRedefineComponent(type, null, provider, scope);
+	}
+
+	/**
+	 * Replaces the definition of the given named component.
+	 *
+	 * @see #redefineComponent(Class, Scope, Provider)
+	 *
+	 * @param type component class
+	 * @param name dependency name
+	 * @param scope lifecycle of component instances
+	 * @param provider component provider
+	 * @param <T> component type
+	 * @return key for requesting the component
+	 */
+	public <T> ComponentKey<T> redefineComponent(Class<T> type, String name, Scope scope, Provider<T> provider) {
+		return doRedefineComponent(type, name, provider, scope);
+	}
+
+	/**
+	 * Replaces the definition of the unnamed component of the given type by one created by the injector itself.
+	 *
+	 * @see #redefineComponent(Class, Scope, Provider)
+	 * @see #defineComponent(Class)
+	 */
+	public <T> ComponentKey<T> redefineComponent(Class<T> type, Scope scope) {
+		return doRedefineComponent(type, null, null, scope);
+	}
+
+	public <T> ComponentKey<T> redefineComponent(Class<T> type, String name, Scope scope) {
+		return doRedefineComponent(type, name, null, scope);
+	}
+
+	/**
+	 * Removes the definition of the unnamed component of the given type.
+	 * <p/>Injection points resolved to the component look up their dependency again on next use, which fails unless
+	 * another component or the parent injector serves it. Its key becomes invalid.
+	 *
+	 * @see #redefineComponent(Class, Scope, Provider)
+	 *
+	 * @param type component class
+	 * @throws RuntimeException if this injector is frozen or does not define the component itself
+	 */
+	public void removeComponent(Class<?> type) {
+		removeComponent(type, null);
+	}
+
+	/**
+	 * Removes the definition of the given named component.
+	 *
+	 * @see #removeComponent(Class)
+	 *
+	 * @param type component class
+	 * @param name dependency name
+	 */
+	public void removeComponent(Class<?> type, String name) {
+		definitionLock.lock();
+		try {
+			checkNotFrozen();
+			ComponentDef componentDef = getOwnComponentDef(type, name);
+
+			ComponentDef[] changedComponents = components.clone();
+			changedComponents[componentDef.getId()] = null;
+			components = changedComponents;
+
+			if (name == null) {
+				unnamedComponentsByType.remove(type);
+				unindexAssignableTypes(componentDef);
+			}
+			else {
+				componentsByName.remove(name);
+			}
+			retireComponentDef(componentDef);
+		}
+		finally {
+			definitionLock.unlock();
+		}
+	}
+
+	/**
+	 * Sets the maximum number of released instances kept for each component of scope {@link Scope#POOLED}.
+	 * <br/>Applies to components defined afterwards, defaults to {@value #DEFAULT_POOL_CAPACITY}.
+	 *
+	 * @param poolCapacity maximum pool size
+	 */
+	public void setPoolCapacity(int poolCapacity) {
+		if (poolCapacity < 0) {
+			throw new IllegalArgumentException("negative pool capacity [" + poolCapacity + "]");
+		}
+		this.poolCapacity = poolCapacity;
+	}
+
+	/**
+	 * Sets the bounds of the instances of components of scope {@link Scope#CACHED}.
+	 * <br/>Applies to components defined afterwards, which share one cache with the given bounds.
+	 * Defaults to {@link CachePolicy#DEFAULT}.
+	 *
+	 * @param cachePolicy cache bounds and reference strength
 	 */
-	public <T> void defineComponent(Class<T> type, String name, boolean singleton, Provider<T> provider) {
-		doDefineComponent(type, name, provider, singleton);
+	public void setCachePolicy(CachePolicy cachePolicy) {
+		if (cachePolicy == null) {
+			throw new IllegalArgumentException("missing cache policy");
+		}
+		definitionLock.lock();
+		try {
+			cache = new ComponentCache(cachePolicy);
+		}
+		finally {
+			definitionLock.unlock();
+		}
+	}
+
+	public CachePolicy getCachePolicy() {
+		return cache.getPolicy();
+	}
+
+	/**
+	 * Speeds up the first definition of component classes by reading which of their members are injected from an
+	 * index file, instead of parsing the annotations of all their members.
+	 * <p/>The file is read once and only used if it has been written for the given build id, it is not validated
+	 * against the class files. Use a build id which changes whenever the component classes change, such as the
+	 * application version plus its build time, and write the index again whenever this method returns false.
+	 * <br/>Classes missing from the index are scanned by reflection as usual, as are classes whose indexed members
+	 * cannot be found any more.
+	 * <br/>Applies to all injectors, classes which have already been scanned are not affected.
+	 *
+	 * @see #writeMetadataIndex(Path, String)
+	 *
+	 * @param path index file
+	 * @param buildId build id of the component classes, not null
+	 * @return false if the file does not exist, has been written for another build id, is truncated or has been
+	 * written by an incompatible version
+	 */
+	public static boolean loadMetadataIndex(Path path, String buildId) {
+		if (!Files.isRegularFile(path)) {
+			return false;
+		}
+		MetadataIndex index;
+		try {
+			index = MetadataIndex.load(path, buildId);
+		}
+		catch (IOException e) {
+			throw new RuntimeException("failed to read metadata index [" + path + "]", e);
+		}
+		if (index == null) {
+			return false;
+		}
+		ClassMetadata.setIndex(index);
+		return true;
 	}
 
-	public <T> void defineComponent(Class<T> type, String name, Provider<T> provider) {
-		doDefineComponent(type, name, provider, false);
+	/**
+	 * Writes the members of all component classes and their ancestors to an index file for {@link #loadMetadataIndex(Path, String)}.
+	 * <br/>Covers inherited definitions and the classes of objects passed to {@link #injectMembers(Object)} as well.
+	 * Classes with a generated {@link MembersInjector} are left out, they are never scanned anyway.
+	 *
+	 * @param path index file, replaced if it exists
+	 * @param buildId build id of the component classes, not null
+	 */
+	public void writeMetadataIndex(Path path, String buildId) {
+		Map<Class<?>, MetadataIndex.ClassEntry> entries = new LinkedHashMap<>();
+		for (ComponentDef componentDef : components) {
+			if (componentDef != null) {
+				collectIndexEntries(componentDef.getType(), entries);
+			}
+		}
+		synchronized (membersPlanTypes) {
+			for (Class<?> type : membersPlanTypes) {
+				collectIndexEntries(type, entries);
+			}
+		}
+
+		try {
+			MetadataIndex.write(path, buildId, entries);
+		}
+		catch (IOException e) {
+			throw new RuntimeException("failed to write metadata index [" + path + "]", e);
+		}
 	}
 
 	/**
@@ -152,14 +778,14 @@ public class Injector {
 	 * @param <T> component type
 	 */
 	public <T> T defineAndGetComponent(Class<T> type, boolean singleton, Provider<T> provider) {
-		doDefineComponent(type, null, provider, singleton);
+		doDefineComponent(type, null, provider, toScope(singleton));
 		T component = getComponent(type);
 
 		return component;
 	}
 
 	public <T> T defineAndGetComponent(Class<T> type, Provider<T> provider) {
-		doDefineComponent(type, null, provider, false);
+		doDefineComponent(type, null, provider, Scope.PROTOTYPE);
 		T component = getComponent(type);
 
 		return component;
@@ -195,183 +821,1670 @@ public class Injector {
 			throw new RuntimeException("unknown component [" + type + "] named [" + name + "]");
 		}
 
-		// create component
-		if (componentDef.isSingleton()) {
-			synchronized (componentDef.singletonLock) {
-				T component = (T)componentDef.getSingletonRef();
-				if (component == null) {
-					Provider<?> provider = componentDef.getProvider();
-					component = (T)provider.provide();
-					if (component != null) {
-						componentDef.setSingletonRef(component);
-						injectDependencies(component, componentDef);
-						postConstruct(componentDef, component);
-					}
-				}
-				return component;
-			}
-		} else {
-			Provider<?> provider = componentDef.getProvider();
-			T component = (T)provider.provide();
+		return (T)getComponent(componentDef);
+	}
+
+	/**
+	 * Returns an object for the given key.
+	 * <br/>Fastest way to request components, since the definition is looked up by index.
+	 *
+	 * @see #defineComponent(Class, Scope, Provider)
+	 * @see #getComponentKey(Class, String)
+	 *
+	 * @param key component key
+	 * @param <T> component type
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getComponent(ComponentKey<T> key) {
+		ComponentDef[] defs = components;
+		int id = key.getId();
+		if (id < defs.length) {
+			ComponentDef componentDef = defs[id];
+			if (componentDef != null && componentDef.getKey() == key) {
+				return (T)getComponent(componentDef);
+			}
+		}
+		throw new RuntimeException("unknown component key " + key);
+	}
+
+	/**
+	 * Creates an object for the given type without blocking the calling thread.
+	 *
+	 * @see #getComponentAsync(Class, String, Executor)
+	 *
+	 * @param type component class
+	 * @param executor executor running providers and injections
+	 * @param <T> component type
+	 * @return future completed with the component
+	 */
+	public <T> CompletableFuture<T> getComponentAsync(Class<T> type, Executor executor) {
+		return getComponentAsync(type, null, executor);
+	}
+
+	/**
+	 * Creates an object for the given type and name without blocking the calling thread.
+	 * <p/>All dependencies of a component are requested concurrently, the component itself is provided, injected and
+	 * post-constructed once all of them are available.
+	 * <br/>Concurrent requests for the same singleton share one creation. Dependencies on components of scope
+	 * {@link Scope#POOLED}, {@link Scope#THREAD} and {@link Scope#FRAME} are resolved by the calling thread.
+	 * Collection injections are resolved by the executor, so they must not hold components of scope {@link Scope#FRAME}.
+	 *
+	 * @param type component class
+	 * @param name component name or null
+	 * @param executor executor running providers and injections
+	 * @param <T> component type
+	 * @return future completed with the component
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<T> getComponentAsync(Class<T> type, String name, Executor executor) {
+		ComponentDef componentDef = getComponentDef(type, name);
+		if (componentDef == null) {
+			throw new RuntimeException("unknown component [" + type + "] named [" + name + "]");
+		}
+
+		return (CompletableFuture<T>)getComponentAsync(componentDef, executor);
+	}
+
+	/**
+	 * Returns the key of the unnamed component serving the given type.
+	 *
+	 * @see #getComponentKey(Class, String)
+	 *
+	 * @param type component class
+	 * @param <T> component type
+	 * @return component key
+	 */
+	public <T> ComponentKey<T> getComponentKey(Class<T> type) {
+		return getComponentKey(type, null);
+	}
+
+	/**
+	 * Returns the key of the component serving the given type and name.
+	 *
+	 * @see #getComponent(ComponentKey)
+	 *
+	 * @param type component class
+	 * @param name component name
+	 * @param <T> component type
+	 * @return component key
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> ComponentKey<T> getComponentKey(Class<T> type, String name) {
+		ComponentDef componentDef = getComponentDef(type, name);
+		if (componentDef == null) {
+			throw new RuntimeException("unknown component [" + type + "] named [" + name + "]");
+		}
+		return (ComponentKey<T>)componentDef.getKey();
+	}
+
+	/**
+	 * Returns the given number of objects for the given type.
+	 *
+	 * @see #fill(Object[])
+	 *
+	 * @param type component class
+	 * @param count number of objects
+	 * @param <T> component type
+	 * @return new array of objects
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T[] getComponents(Class<T> type, int count) {
+		T[] components = (T[])Array.newInstance(type, count);
+		fill(components);
+		return components;
+	}
+
+	/**
+	 * Fills the given array with objects of its component type.
+	 * <br/>The component definition and all singleton dependencies are resolved only once for the whole array.
+	 *
+	 * @param target array to fill
+	 * @param <T> component type
+	 */
+	public <T> void fill(T[] target) {
+		fill(target, null);
+	}
+
+	/**
+	 * Fills the given array with objects of its component type, creating large numbers of prototypes in parallel.
+	 * <br/>Providers and {@link PostConstruct} callbacks of the component and its dependencies must be thread-safe
+	 * when creating at least {@value #PARALLEL_BATCH_THRESHOLD} prototypes.
+	 * Pool threads have no active scope, so the component must not depend on components of scope {@link Scope#FRAME}.
+	 *
+	 * @see #fill(Object[])
+	 *
+	 * @param target array to fill
+	 * @param pool fork/join pool for parallel creation or null
+	 * @param <T> component type
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> void fill(T[] target, ForkJoinPool pool) {
+		Class<?> type = target.getClass().getComponentType();
+		ComponentDef componentDef = getComponentDef(type, null);
+		if (componentDef == null) {
+			throw new RuntimeException("unknown component [" + type + "]");
+		}
+
+		// all other scopes hand out shared or thread bound instances
+		if (componentDef.getScope() != Scope.PROTOTYPE) {
+			for (int i = 0; i < target.length; i++) {
+				target[i] = (T)getComponent(componentDef);
+			}
+			return;
+		}
+
+		// resolve singleton dependencies once
+		Injection[] injections = componentDef.getInjections();
+		Object[] singletons = new Object[injections.length];
+		for (int i = 0; i < injections.length; i++) {
+			ComponentDef injectionDef = resolveInjection(componentDef, injections[i]).getComponentDef();
+			if (injectionDef != null && injectionDef.isSingleton() && injections[i].isEager()) {
+				singletons[i] = getComponent(injectionDef);
+			}
+		}
+
+		if (pool != null && target.length >= PARALLEL_BATCH_THRESHOLD) {
+			checkNoFrameDependencies(componentDef, componentDef, new HashSet<>());
+			pool.invoke(new BatchTask(componentDef, singletons, target, 0, target.length));
+		}
+		else {
+			createComponents(componentDef, singletons, target, 0, target.length);
+		}
+	}
+
+	/**
+	 * Injects dependencies into an object not created by this injector and invokes its {@link PostConstruct} callbacks.
+	 * <br/>The object's class does not need to be defined as component, its injection points are scanned once per class.
+	 *
+	 * @param component object created by deserializers, factories and the like
+	 */
+	public void injectMembers(Object component) {
+		ComponentDef plan = getMembersPlan(component.getClass());
+		injectDependencies(component, plan);
+		postConstruct(plan, component);
+	}
+
+	/**
+	 * Injects dependencies into all given objects not created by this injector.
+	 *
+	 * @see #injectMembers(Object)
+	 *
+	 * @param components objects to inject
+	 */
+	public void injectMembers(Collection<?> components) {
+		injectMembers(components, null);
+	}
+
+	/**
+	 * Injects dependencies into all given objects, large numbers of objects in parallel.
+	 * <br/>Providers and {@link PostConstruct} callbacks of the objects and their dependencies must be thread-safe
+	 * when injecting at least {@value #PARALLEL_BATCH_THRESHOLD} objects.
+	 * Pool threads have no active scope, so the objects must not depend on components of scope {@link Scope#FRAME}.
+	 *
+	 * @see #injectMembers(Object)
+	 *
+	 * @param components objects to inject
+	 * @param pool fork/join pool for parallel injection or null
+	 */
+	public void injectMembers(Collection<?> components, ForkJoinPool pool) {
+		Object[] targets = components.toArray();
+		if (pool != null && targets.length >= PARALLEL_BATCH_THRESHOLD) {
+			Set<Class<?>> types = new HashSet<>();
+			Set<ComponentDef> visited = new HashSet<>();
+			for (Object target : targets) {
+				if (types.add(target.getClass())) {
+					ComponentDef plan = getMembersPlan(target.getClass());
+					checkNoFrameDependencies(plan, plan, visited);
+				}
+			}
+			pool.invoke(new MembersTask(targets, 0, targets.length));
+		}
+		else {
+			injectMembers(targets, 0, targets.length);
+		}
+	}
+
+	/**
+	 * Gives a component of scope {@link Scope#POOLED} back to its pool.
+	 * <br/>The component is looked up by its class or the closest ancestor defined as component, so providers may
+	 * return subclasses of the defined type. Its {@link Reset} callback is invoked immediately.
+	 * A component must not be used any more after having been released, releasing it twice fails.
+	 * <br/>If the pool is full, the component is left to the garbage collector.
+	 *
+	 * @see #setPoolCapacity(int)
+	 *
+	 * @param component pooled component
+	 */
+	public void release(Object component) {
+		release(component, null);
+	}
+
+	/**
+	 * Gives a named component of scope {@link Scope#POOLED} back to its pool.
+	 *
+	 * @see #release(Object)
+	 *
+	 * @param component pooled component
+	 * @param name component name
+	 */
+	public void release(Object component, String name) {
+		ComponentDef componentDef = getPooledComponentDef(component, name);
+		if (componentDef == null) {
+			throw new RuntimeException("no pooled component [" + component.getClass() + "] named [" + name + "]");
+		}
+		if (componentDef.getPool().contains(component)) {
+			throw new RuntimeException("component already released [" + component.getClass() + "] named [" + name + "]");
+		}
+
+		MethodHandle reset = componentDef.getReset();
+		if (reset != null) {
+			try {
+				reset.invokeExact(component);
+			}
+			catch (Throwable e) {
+				throw new RuntimeException("reset", e);
+			}
+		}
+		componentDef.getPool().release(component);
+	}
+
+	/**
+	 * Begins a new frame or request scope for the current thread.
+	 * <br/>Until {@link #endScope()} is called, each component of scope {@link Scope#FRAME} is created only once
+	 * for the current thread.
+	 */
+	public void beginScope() {
+		scopes.get().begin();
+	}
+
+	/**
+	 * Ends the scope of the current thread, dropping all components created during the scope.
+	 *
+	 * @see #beginScope()
+	 */
+	public void endScope() {
+		scopes.get().end();
+	}
+
+	private Object getComponent(ComponentDef componentDef) {
+		ComponentMetrics metrics = componentDef.getMetrics();
+		if (metrics != null) {
+			metrics.recordLookup();
+		}
+
+		switch (componentDef.getScope()) {
+			case SINGLETON:
+				// optionally return existing singleton
+				Object component = componentDef.getSingletonRef();
+				if (component != null) {
+					if (metrics != null) {
+						metrics.recordSingletonHit();
+					}
+					return component;
+				}
+				return createSingleton(componentDef);
+			case POOLED:
+				return acquireComponent(componentDef);
+			case THREAD:
+				return getThreadComponent(componentDef);
+			case FRAME:
+				return getScopedComponent(componentDef);
+			case CACHED:
+				return getCachedComponent(componentDef);
+			default:
+				return createComponent(componentDef);
+		}
+	}
+
+	private CompletableFuture<Object> getComponentAsync(ComponentDef componentDef, Executor executor) {
+		switch (componentDef.getScope()) {
+			case SINGLETON:
+				Object component = componentDef.getSingletonRef();
+				if (component != null) {
+					ComponentMetrics metrics = componentDef.getMetrics();
+					if (metrics != null) {
+						metrics.recordLookup();
+						metrics.recordSingletonHit();
+					}
+					return CompletableFuture.completedFuture(component);
+				}
+				return createSingletonAsync(componentDef, executor);
+			case PROTOTYPE:
+				ComponentMetrics metrics = componentDef.getMetrics();
+				if (metrics != null) {
+					metrics.recordLookup();
+				}
+				return createComponentAsync(componentDef, executor);
+			default:
+				return CompletableFuture.completedFuture(getComponent(componentDef));
+		}
+	}
+
+	/**
+	 * Starts creating the given singleton unless another caller already did so.
+	 * <br/>Callers waiting for the singleton are never blocked, they share the future of the first caller.
+	 */
+	private CompletableFuture<Object> createSingletonAsync(ComponentDef componentDef, Executor executor) {
+		CompletableFuture<Object> future = componentDef.getSingletonFuture();
+		while (future == null) {
+			CompletableFuture<Object> newFuture = new CompletableFuture<>();
+			if (componentDef.compareAndSetSingletonFuture(null, newFuture)) {
+				createComponentAsync(componentDef, executor).whenComplete((component, e) -> {
+					// later requests read the singleton or retry after failures
+					componentDef.compareAndSetSingletonFuture(newFuture, null);
+					if (e != null) {
+						newFuture.completeExceptionally(e);
+					}
+					else {
+						newFuture.complete(component);
+					}
+				});
+				return newFuture;
+			}
+			future = componentDef.getSingletonFuture();
+		}
+		return future;
+	}
+
+	/**
+	 * Requests all dependencies of the given component concurrently and creates it once they are available.
+	 */
+	private CompletableFuture<Object> createComponentAsync(ComponentDef componentDef, Executor executor) {
+		CompletableFuture<?>[] constructorFutures = getDependenciesAsync(componentDef, componentDef.getConstructorInjections(), executor);
+		CompletableFuture<?>[] fieldFutures = getDependenciesAsync(componentDef, componentDef.getInjections(), executor);
+		CompletableFuture<?>[] futures = Arrays.copyOf(constructorFutures, constructorFutures.length + fieldFutures.length);
+		System.arraycopy(fieldFutures, 0, futures, constructorFutures.length, fieldFutures.length);
+
+		return CompletableFuture.allOf(futures).thenApplyAsync(v -> {
+			Object[] constructorArgs = componentDef.getConstructor() != null ? join(constructorFutures) : null;
+			Object[] singletons = join(fieldFutures);
+			if (componentDef.isSingleton()) {
+				return createSingleton(componentDef, constructorArgs, singletons);
+			}
+			return createComponent(componentDef, constructorArgs, singletons);
+		}, executor);
+	}
+
+	/**
+	 * Requests the eager dependencies of the given injection points concurrently.
+	 * <br/>Dependencies leading back to a singleton are left to its creation, waiting for them would never finish.
+	 * Collections of dependencies are created along with the component as well.
+	 */
+	private CompletableFuture<?>[] getDependenciesAsync(ComponentDef componentDef, Injection[] injections, Executor executor) {
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[injections.length];
+		for (int i = 0; i < injections.length; i++) {
+			ComponentDef injectionDef = resolveInjection(componentDef, injections[i]).getComponentDef();
+			if (injectionDef != null && injections[i].isEager() && !(componentDef.isSingleton() && isCyclic(componentDef, injectionDef))) {
+				futures[i] = getComponentAsync(injectionDef, executor);
+			}
+			else {
+				futures[i] = UNRESOLVED;
+			}
+		}
+		return futures;
+	}
+
+	private static Object[] join(CompletableFuture<?>[] futures) {
+		Object[] values = new Object[futures.length];
+		for (int i = 0; i < futures.length; i++) {
+			values[i] = futures[i].join();
+		}
+		return values;
+	}
+
+	/**
+	 * Returns true if the given dependency of the given component depends eagerly on the component again, directly or indirectly.
+	 * <br/>This is the case if both belong to the same strongly connected component of the eager dependency graph.
+	 * These are computed once for all components reachable from the given one and kept until definitions change.
+	 */
+	private boolean isCyclic(ComponentDef componentDef, ComponentDef injectionDef) {
+		Map<ComponentDef, Object> cycles = this.cycles;
+		Object cycle = cycles.get(componentDef);
+		if (cycle == null) {
+			definitionLock.lock();
+			try {
+				cycles = this.cycles;
+				if (!cycles.containsKey(componentDef)) {
+					findCycles(componentDef, cycles, new HashMap<>(), new ArrayDeque<>());
+				}
+				cycle = cycles.get(componentDef);
+			}
+			finally {
+				definitionLock.unlock();
+			}
+		}
+		return cycles.get(injectionDef) == cycle;
+	}
+
+	/**
+	 * Assigns the strongly connected components of the eager dependency graph reachable from the given component,
+	 * following Tarjan's algorithm. Components of one cycle share the same marker object.
+	 * <br/>Must be called while holding the definition lock.
+	 *
+	 * @param indices visiting order of all components visited by this search
+	 * @param stack visited components not yet assigned to a cycle
+	 * @return lowest visiting order of the components reachable from the given one and still on the stack
+	 */
+	private int findCycles(ComponentDef componentDef, Map<ComponentDef, Object> cycles, Map<ComponentDef, Integer> indices,
+		Deque<ComponentDef> stack) {
+		int index = indices.size();
+		int lowLink = index;
+		indices.put(componentDef, index);
+		stack.push(componentDef);
+
+		for (Injection[] injections : new Injection[][] {componentDef.getConstructorInjections(), componentDef.getInjections()}) {
+			for (int i = 0; i < injections.length; i++) {
+				if (!injections[i].isEager()) {
+					continue;
+				}
+				for (ComponentDef injectionDef : resolveInjection(componentDef, injections[i]).getComponentDefs()) {
+					if (cycles.containsKey(injectionDef)) {
+						continue;
+					}
+					Integer injectionIndex = indices.get(injectionDef);
+					if (injectionIndex == null) {
+						lowLink = Math.min(lowLink, findCycles(injectionDef, cycles, indices, stack));
+					}
+					else {
+						lowLink = Math.min(lowLink, injectionIndex);
+					}
+				}
+			}
+		}
+
+		if (lowLink == index) {
+			Object cycle = new Object();
+			ComponentDef member;
+			do {
+				member = stack.pop();
+				cycles.put(member, cycle);
+			}
+			while (member != componentDef);
+		}
+		return lowLink;
+	}
+
+	/**
+	 * Fails if creating the given component eagerly requests a component of scope {@link Scope#FRAME}.
+	 * <br/>Used before handing creation to pool threads, which would fail on their missing scope only halfway through.
+	 */
+	private void checkNoFrameDependencies(ComponentDef target, ComponentDef componentDef, Set<ComponentDef> visited) {
+		if (!visited.add(componentDef)) {
+			return;
+		}
+		for (Injection[] injections : new Injection[][] {componentDef.getConstructorInjections(), componentDef.getInjections()}) {
+			for (int i = 0; i < injections.length; i++) {
+				if (!injections[i].isEager()) {
+					continue;
+				}
+				for (ComponentDef injectionDef : resolveInjection(componentDef, injections[i]).getComponentDefs()) {
+					if (injectionDef.getScope() == Scope.FRAME) {
+						throw new RuntimeException("component " + target + " depends on " + injectionDef
+							+ " of scope FRAME, which cannot be created by parallel pool threads");
+					}
+					checkNoFrameDependencies(target, injectionDef, visited);
+				}
+			}
+		}
+	}
+
+	private Object getThreadComponent(ComponentDef componentDef) {
+		ThreadLocal<Object> threadRef = componentDef.getThreadRef();
+		Object component = threadRef.get();
+		if (component == null) {
+			component = createComponent(componentDef);
+			threadRef.set(component);
+		}
+		return component;
+	}
+
+	/**
+	 * Returns the cached instance of the given component or creates it if it has been evicted.
+	 * <br/>Concurrent misses are serialized by the singleton lock, so only one instance is created.
+	 */
+	private Object getCachedComponent(ComponentDef componentDef) {
+		ComponentCache cache = componentDef.getCache();
+		Object component = cache.get(componentDef);
+		if (component != null) {
+			return component;
+		}
+
+		ReentrantLock lock = componentDef.singletonLock;
+		lock.lock();
+		try {
+			component = cache.get(componentDef);
+			if (component == null) {
+				component = createComponent(componentDef);
+				cache.put(componentDef, component);
+			}
+			return component;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private Object getScopedComponent(ComponentDef componentDef) {
+		ComponentScope scope = scopes.get();
+		if (!scope.isActive()) {
+			throw new RuntimeException("no active scope for component " + componentDef + " on thread [" + Thread.currentThread().getName()
+				+ "], call beginScope() on the requesting thread");
+		}
+
+		Object component = scope.get(componentDef);
+		if (component == null) {
+			component = createComponent(componentDef);
+			scope.put(componentDef, component);
+		}
+		return component;
+	}
+
+	/**
+	 * Re-uses a released instance of the given component or creates a new one if its pool is empty.
+	 */
+	private Object acquireComponent(ComponentDef componentDef) {
+		Object component = componentDef.getPool().acquire();
+		if (component == null) {
+			return createComponent(componentDef);
+		}
+
+		injectDependencies(component, componentDef);
+		postConstruct(componentDef, component);
+		return component;
+	}
+
+	/**
+	 * Creates the singleton of the given component unless another thread has already done so.
+	 * <br/>Uses an explicit lock instead of a monitor, so virtual threads waiting for the singleton do not pin their carrier.
+	 */
+	private Object createSingleton(ComponentDef componentDef) {
+		return createSingleton(componentDef, null, null);
+	}
+
+	/**
+	 * Creates the singleton of the given component from the given pre-resolved dependencies.
+	 *
+	 * @param constructorArgs constructor argument per constructor injection point or null to use the provider
+	 * @param singletons dependency per injection point or null
+	 */
+	private Object createSingleton(ComponentDef componentDef, Object[] constructorArgs, Object[] singletons) {
+		ComponentMetrics metrics = componentDef.getMetrics();
+		long start = 0;
+		Object event = null;
+		ReentrantLock lock = componentDef.singletonLock;
+		if (metrics != null) {
+			start = System.nanoTime();
+			lock.lock();
+			metrics.getLockWaitTime().record(System.nanoTime() - start);
+		}
+		else {
+			lock.lock();
+		}
+		try {
+			Object component = componentDef.getSingletonRef();
 			if (component != null) {
-				injectDependencies(component, componentDef);
+				return component;
+			}
+
+			// cyclic dependencies get the singleton under construction
+			component = componentDef.getPendingSingletonRef();
+			if (component != null) {
+				return component;
+			}
+			if (lock.getHoldCount() > 1) {
+				throw new RuntimeException("cyclic constructor dependency on " + componentDef);
+			}
+
+			if (metrics != null) {
+				start = System.nanoTime();
+			}
+			event = FLIGHT_RECORDER != null ? FLIGHT_RECORDER.beginCreation() : null;
+			component = provide(componentDef, metrics, constructorArgs);
+			if (component != null) {
+				componentDef.setPendingSingletonRef(component);
+				try {
+					injectDependencies(component, componentDef, singletons);
+					postConstruct(componentDef, component);
+					componentDef.setSingletonRef(component);
+					registerSingleton(componentDef);
+				}
+				finally {
+					componentDef.setPendingSingletonRef(null);
+				}
+			}
+			if (metrics != null) {
+				metrics.getCreationTime().record(System.nanoTime() - start);
+			}
+			return component;
+		}
+		finally {
+			lock.unlock();
+			if (event != null) {
+				FLIGHT_RECORDER.endCreation(event, componentDef);
+			}
+		}
+	}
+
+	/**
+	 * Runs the compiled creation plan of the given component: provider, field setters and post construction.
+	 */
+	private Object createComponent(ComponentDef componentDef) {
+		return createComponent(componentDef, null);
+	}
+
+	/**
+	 * Creates a component, injecting the given pre-resolved singletons.
+	 *
+	 * @param singletons singleton per injection point or null
+	 */
+	private Object createComponent(ComponentDef componentDef, Object[] singletons) {
+		return createComponent(componentDef, null, singletons);
+	}
+
+	/**
+	 * Creates a component from the given pre-resolved dependencies.
+	 *
+	 * @param constructorArgs constructor argument per constructor injection point or null to use the provider
+	 * @param singletons dependency per injection point or null
+	 */
+	private Object createComponent(ComponentDef componentDef, Object[] constructorArgs, Object[] singletons) {
+		ComponentMetrics metrics = componentDef.getMetrics();
+		Object event = FLIGHT_RECORDER != null ? FLIGHT_RECORDER.beginCreation() : null;
+		long start = metrics != null ? System.nanoTime() : 0;
+		try {
+			Object component = provide(componentDef, metrics, constructorArgs);
+			if (component != null) {
+				injectDependencies(component, componentDef, singletons);
 				postConstruct(componentDef, component);
 			}
-			return component;
+			if (metrics != null) {
+				metrics.getCreationTime().record(System.nanoTime() - start);
+			}
+			return component;
+		}
+		finally {
+			if (event != null) {
+				FLIGHT_RECORDER.endCreation(event, componentDef);
+			}
+		}
+	}
+
+	private Object provide(ComponentDef componentDef, ComponentMetrics metrics, Object[] constructorArgs) {
+		long start = metrics != null ? System.nanoTime() : 0;
+		Object component;
+		if (constructorArgs != null) {
+			component = construct(componentDef, constructorArgs);
+		}
+		else {
+			component = componentDef.getProvider().provide();
+		}
+		if (metrics != null) {
+			metrics.getProviderTime().record(System.nanoTime() - start);
+		}
+		return component;
+	}
+
+	/**
+	 * Injects dependencies into the given array range, looking up the injection plan only when the class changes.
+	 */
+	private void injectMembers(Object[] targets, int from, int to) {
+		ComponentDef plan = null;
+		for (int i = from; i < to; i++) {
+			Object component = targets[i];
+			if (plan == null || plan.getType() != component.getClass()) {
+				plan = getMembersPlan(component.getClass());
+			}
+			injectDependencies(component, plan);
+			postConstruct(plan, component);
+		}
+	}
+
+	/**
+	 * Returns the cached injection plan for objects of the given class created outside of this injector.
+	 * <br/>Plans are unregistered definitions, so they are never handed out as components.
+	 */
+	private ComponentDef getMembersPlan(Class<?> type) {
+		return membersPlans.get(type);
+	}
+
+	/**
+	 * Creates the cache of injection plans, held by the classes themselves so that neither classes nor their loaders are pinned.
+	 */
+	private ClassValue<ComponentDef> newMembersPlans() {
+		return new ClassValue<ComponentDef>() {
+			@Override
+			protected ComponentDef computeValue(Class<?> type) {
+				ClassMetadata metadata = ClassMetadata.forType(type);
+				ComponentDef plan = new ComponentDef(type, null, null);
+				plan.setInjections(metadata.createInjections());
+				plan.setPostConstruct(metadata.getPostConstruct());
+				membersPlanTypes.add(type);
+				return plan;
+			}
+		};
+	}
+
+	/**
+	 * Creates prototypes for the given array range, injecting the given pre-resolved singletons.
+	 */
+	private void createComponents(ComponentDef componentDef, Object[] singletons, Object[] target, int from, int to) {
+		for (int i = from; i < to; i++) {
+			target[i] = createComponent(componentDef, singletons);
+		}
+	}
+
+	private <T> ComponentKey<T> doDefineComponent(Class<T> type, String name, Provider<?> provider, Scope scope) {
+		checkNotFrozen();
+
+		// collect component meta data outside of the lock, so classes are scanned in parallel
+		Object event = FLIGHT_RECORDER != null ? FLIGHT_RECORDER.beginDefinition() : null;
+		ComponentDef componentDef = createComponentDef(type, name, provider, scope);
+
+		ComponentKey<T> key;
+		definitionLock.lock();
+		try {
+			checkNotFrozen();
+
+			// prevent duplicates
+			if ((name != null && componentsByName.containsKey(name))) {
+				throw new RuntimeException("duplicate component [" + type + "] named [" + name + "]");
+			}
+			if (name == null && unnamedComponentsByType.containsKey(type)) {
+				throw new RuntimeException("duplicate component [" + type + "]");
+			}
+
+			key = new ComponentKey<>(components.length, type, name);
+			registerComponentDef(componentDef, key);
+
+			ComponentDef[] extendedComponents = Arrays.copyOf(components, components.length + 1);
+			extendedComponents[key.getId()] = componentDef;
+			components = extendedComponents;
+
+			if (name == null) {
+				unnamedComponentsByType.put(type, componentDef);
+				indexAssignableTypes(componentDef);
+			}
+			else {
+				componentsByName.put(name, componentDef);
+			}
+			invalidateCollections(componentDef);
+			if (firstComponentId > 0) {
+				copyShadowedComponentDefs(componentDef);
+			}
+		}
+		finally {
+			definitionLock.unlock();
+		}
+
+		if (event != null) {
+			FLIGHT_RECORDER.endDefinition(event, componentDef);
+		}
+		return key;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> ComponentKey<T> doRedefineComponent(Class<T> type, String name, Provider<?> provider, Scope scope) {
+		checkNotFrozen();
+
+		Object event = FLIGHT_RECORDER != null ? FLIGHT_RECORDER.beginDefinition() : null;
+		ComponentDef componentDef = createComponentDef(type, name, provider, scope);
+
+		ComponentKey<T> key;
+		definitionLock.lock();
+		try {
+			checkNotFrozen();
+
+			// the replacement takes over the slot and key of the current definition
+			ComponentDef oldDef = getOwnComponentDef(type, name);
+			key = (ComponentKey<T>)oldDef.getKey();
+			registerComponentDef(componentDef, key);
+
+			ComponentDef[] changedComponents = components.clone();
+			changedComponents[key.getId()] = componentDef;
+			components = changedComponents;
+
+			if (name == null) {
+				unnamedComponentsByType.put(type, componentDef);
+				Set<Class<?>> supertypes = new HashSet<>();
+				collectSupertypes(type, supertypes);
+				for (Class<?> supertype : supertypes) {
+					componentsByAssignableType.replace(supertype, oldDef, componentDef);
+				}
+			}
+			else {
+				componentsByName.put(name, componentDef);
+			}
+			retireComponentDef(oldDef);
+		}
+		finally {
+			definitionLock.unlock();
+		}
+
+		if (event != null) {
+			FLIGHT_RECORDER.endDefinition(event, componentDef);
+		}
+		return key;
+	}
+
+	/**
+	 * Collects the meta data of a new definition, does not need the definition lock.
+	 */
+	private ComponentDef createComponentDef(Class<?> type, String name, Provider<?> provider, Scope scope) {
+		ComponentDef componentDef = new ComponentDef(type, name, provider);
+		componentDef.setScope(scope);
+		ClassMetadata metadata = ClassMetadata.forType(type);
+		componentDef.setInjections(metadata.createInjections());
+		componentDef.setPostConstruct(metadata.getPostConstruct());
+		componentDef.setReset(metadata.getReset());
+		componentDef.setPreDestroy(metadata.getPreDestroy());
+		if (provider == null) {
+			componentDef.setConstructor(metadata.getConstructor());
+			componentDef.setConstructorInjections(metadata.createConstructorInjections());
+			componentDef.setProvider(() -> construct(componentDef, null));
+		}
+		return componentDef;
+	}
+
+	/**
+	 * Assigns the given key and the instance holders of its scope to the given definition.
+	 * <br/>Must be called while holding the definition lock.
+	 */
+	private void registerComponentDef(ComponentDef componentDef, ComponentKey<?> key) {
+		componentDef.setKey(key);
+		cycles = new ConcurrentHashMap<>();
+		Scope scope = componentDef.getScope();
+		if (scope == Scope.POOLED) {
+			componentDef.setPool(new ComponentPool(poolCapacity));
+		}
+		else if (scope == Scope.THREAD) {
+			componentDef.setThreadRef(new ThreadLocal<>());
+		}
+		else if (scope == Scope.CACHED) {
+			componentDef.setCache(cache);
+		}
+		componentDef.setMetrics(createMetrics(componentDef));
+	}
+
+	/**
+	 * Returns the given component if defined by this injector itself.
+	 */
+	private ComponentDef getOwnComponentDef(Class<?> type, String name) {
+		ComponentDef componentDef = name != null ? componentsByName.get(name) : unnamedComponentsByType.get(type);
+		if (componentDef == null || componentDef.getType() != type) {
+			throw new RuntimeException("unknown component [" + type + "] named [" + name + "]");
+		}
+		return componentDef;
+	}
+
+	/**
+	 * Drops all injection points resolved to the given replaced or removed definition, so only its direct dependents
+	 * look up their dependencies again.
+	 * <br/>Must be called while holding the definition lock, after the definition has been unregistered.
+	 */
+	private void retireComponentDef(ComponentDef componentDef) {
+		componentDef.retire();
+		cycles = new ConcurrentHashMap<>();
+		Set<Injection> dependents = dependentsByComponent.remove(componentDef);
+		if (dependents != null) {
+			for (Injection injection : dependents) {
+				injection.unresolve();
+			}
+		}
+		if (componentDef.getCache() != null) {
+			componentDef.getCache().evict(componentDef);
+		}
+	}
+
+	/**
+	 * Invokes the constructor of the given component with all its dependencies.
+	 *
+	 * @param args pre-resolved argument per constructor injection point or null
+	 */
+	private Object construct(ComponentDef componentDef, Object[] args) {
+		Injection[] injections = componentDef.getConstructorInjections();
+		if (args == null) {
+			args = new Object[injections.length];
+		}
+		for (int i = 0; i < injections.length; i++) {
+			if (args[i] == null) {
+				args[i] = getInjectionValue(injections[i], resolveInjection(componentDef, injections[i]));
+			}
+		}
+
+		try {
+			return componentDef.getConstructor().invokeExact(args);
+		}
+		catch (RuntimeException e) {
+			throw e;
+		}
+		catch (Throwable e) {
+			throw new RuntimeException("construct " + componentDef, e);
+		}
+	}
+
+	private void injectDependencies(Object component, ComponentDef componentDef) {
+		injectDependencies(component, componentDef, null);
+	}
+
+	private void injectDependencies(Object component, ComponentDef componentDef, Object[] singletons) {
+		Injection[] injections = componentDef.getInjections();
+		Object event = FLIGHT_RECORDER != null && injections.length > 0 ? FLIGHT_RECORDER.beginInjection() : null;
+		try {
+			// inject field values
+			for (int i = 0; i < injections.length; i++) {
+				Injection injection = injections[i];
+				Object injectionValue = singletons != null ? singletons[i] : null;
+				if (injectionValue == null) {
+					injectionValue = getInjectionValue(injection, resolveInjection(componentDef, injection));
+				}
+				setField(component, injection, injectionValue);
+			}
+		}
+		finally {
+			if (event != null) {
+				FLIGHT_RECORDER.endInjection(event, componentDef);
+			}
 		}
 	}
 
-	private void doDefineComponent(Class<?> type, String name, Provider<?> provider, boolean singleton) {
-		// prevent duplicates
-		if ((name != null && componentsByName.containsKey(name))) {
-			throw new RuntimeException("duplicate component [" + type + "] named [" + name + "]");
+	/**
+	 * Returns the resolution of the given dependency, looking it up on first use.
+	 * <br/>Callers must only use the returned resolution, a concurrent redefinition may drop the one of the injection point
+	 * at any time.
+	 *
+	 * @return resolved definitions, without single definition for injections of all components of a type
+	 */
+	private Injection.Resolution resolveInjection(ComponentDef componentDef, Injection injection) {
+		Injection.Resolution resolution = injection.getResolution();
+		if (resolution != null) {
+			return resolution;
+		}
+
+		if (injection.isMultiple()) {
+			int version = definitionVersion;
+			ComponentDef[] injectionDefs = getComponentDefs(injection.getType(), injection.getKind() == Injection.Kind.MAP);
+			resolution = new Injection.Resolution(null, injectionDefs, null);
+			injection.setResolution(resolution);
+			for (ComponentDef injectionDef : injectionDefs) {
+				registerDependent(injectionDef, injection);
+			}
+			registerCollection(injection, version);
+			return resolution;
+		}
+
+		Class<?> injectionType = injection.getType();
+		ComponentDef injectionDef = getComponentDef(injectionType, injection.getName());
+		if (injectionDef == null) {
+			throw new RuntimeException("no component of type [" + injectionType + "] defined for injection into [" + componentDef.getType() + "]");
 		}
-		if (name == null && unnamedComponentsByType.containsKey(type)) {
-			throw new RuntimeException("duplicate component [" + type + "]");
+
+		// deferred injections are bound to the resolved definition
+		Provider<?> provider = null;
+		if (!injection.isEager()) {
+			provider = () -> getComponent(injectionDef);
 		}
+		resolution = new Injection.Resolution(injectionDef, new ComponentDef[] {injectionDef}, provider);
+		injection.setResolution(resolution);
+		registerDependent(injectionDef, injection);
+		return resolution;
+	}
 
-		// collect component meta data
-		ComponentDef componentDef = new ComponentDef(type, name, provider);
-		componentDef.setSingleton(singleton);
-		List<Injection> injections = componentDef.getInjections();
-		Class<?> c = type;
-		while(c != null && c != Object.class) {
-			// collect PostConstruct methods
-			Method[] methods = c.getDeclaredMethods();
-			for (int i = 0; i < methods.length; i++) {
-				Method method = methods[i];
-				PostConstruct postConstruct = method.getAnnotation(PostConstruct.class);
-				if (postConstruct != null) {
-					componentDef.setPostConstruct(method);
-					break;
+	/**
+	 * Adds the given injection point to the reverse dependency index, unless definitions can no longer change.
+	 */
+	private void registerDependent(ComponentDef injectionDef, Injection injection) {
+		if (frozen) {
+			return;
+		}
+		dependentsByComponent.computeIfAbsent(injectionDef, def -> ConcurrentHashMap.newKeySet()).add(injection);
+
+		// a concurrent redefinition may have retired the dependency before the injection point was indexed
+		if (injectionDef.isRetired()) {
+			injection.unresolve();
+		}
+	}
+
+	/**
+	 * Adds the given collection injection point to the index of collections, unless definitions can no longer change.
+	 *
+	 * @param version definition version read before the collection has been looked up
+	 */
+	private void registerCollection(Injection injection, int version) {
+		if (frozen) {
+			return;
+		}
+		collectionsByType.computeIfAbsent(injection.getType(), type -> ConcurrentHashMap.newKeySet()).add(injection);
+
+		// a concurrent definition may have been added after the lookup but before the injection point was indexed
+		if (definitionVersion != version) {
+			injection.unresolve();
+		}
+	}
+
+	/**
+	 * Drops all resolved collection injection points the given new definition belongs to, including empty ones,
+	 * so they look up their elements again.
+	 * <br/>Must be called while holding the definition lock, after the definition has been registered.
+	 */
+	private void invalidateCollections(ComponentDef componentDef) {
+		definitionVersion++;
+		Set<Class<?>> supertypes = new HashSet<>();
+		collectSupertypes(componentDef.getType(), supertypes);
+		for (Class<?> supertype : supertypes) {
+			Set<Injection> collections = collectionsByType.remove(supertype);
+			if (collections != null) {
+				for (Injection injection : collections) {
+					injection.unresolve();
+				}
+			}
+		}
+	}
+
+	private Object getInjectionValue(Injection injection, Injection.Resolution resolution) {
+		switch (injection.getKind()) {
+			case PROVIDER:
+				return resolution.getProvider();
+			case LAZY:
+				return new LazyComponent(resolution.getProvider());
+			case LIST:
+				return Collections.unmodifiableList(Arrays.asList(getComponents(injection.getType(), resolution)));
+			case ARRAY:
+				return getComponents(injection.getType(), resolution);
+			case MAP:
+				ComponentDef[] injectionDefs = resolution.getComponentDefs();
+				Map<String, Object> namedComponents = new LinkedHashMap<>();
+				for (int i = 0; i < injectionDefs.length; i++) {
+					namedComponents.put(injectionDefs[i].getName(), getComponent(injectionDefs[i]));
 				}
+				return Collections.unmodifiableMap(namedComponents);
+			default:
+				return getComponent(resolution.getComponentDef());
+		}
+	}
+
+	/**
+	 * Returns a new array of the given dependency type holding one instance of each resolved dependency.
+	 */
+	private Object[] getComponents(Class<?> type, Injection.Resolution resolution) {
+		ComponentDef[] injectionDefs = resolution.getComponentDefs();
+		Object[] instances = (Object[])Array.newInstance(type, injectionDefs.length);
+		for (int i = 0; i < injectionDefs.length; i++) {
+			instances[i] = getComponent(injectionDefs[i]);
+		}
+		return instances;
+	}
+
+	/**
+	 * Collects all components assignable to the given type in definition order.
+	 * <br/>Definitions of this injector replace inherited definitions of the same type or name.
+	 *
+	 * @param namedOnly true to skip unnamed components
+	 */
+	private ComponentDef[] getComponentDefs(Class<?> type, boolean namedOnly) {
+		Map<Object, ComponentDef> componentDefs = new LinkedHashMap<>();
+		for (ComponentDef componentDef : components) {
+			if (componentDef != null && type.isAssignableFrom(componentDef.getType()) && (!namedOnly || componentDef.getName() != null)) {
+				Object identity = componentDef.getName() != null ? componentDef.getName() : componentDef.getType();
+				componentDefs.remove(identity);
+				componentDefs.put(identity, componentDef);
+			}
+		}
+		return componentDefs.values().toArray(new ComponentDef[componentDefs.size()]);
+	}
+
+	private static void setField(Object component, Injection injection, Object injectionValue) {
+		try {
+			injection.getSetter().invokeExact(component, injectionValue);
+		}
+		catch (Throwable e) {
+			throw new RuntimeException("injectDependencies", e);
+		}
+	}
+
+	private ComponentDef getComponentDef(Class<?> type, String name) {
+		// look for named component
+		if (name != null) {
+			ComponentDef compDef = componentsByName.get(name);
+			if (compDef == null && parent != null) {
+				return toInheritedComponentDef(parent.getComponentDef(type, name));
+			}
+			return compDef;
+		}
+
+		// look for unnamed component of the given type or any descendant type
+		ComponentDef compDef = componentsByAssignableType.get(type);
+		if (compDef == AMBIGOUS) {
+			throw new AmbigousComponentException("multiple components for injection [" + type + "] [" + name + "]");
+		}
+		if (compDef == null && parent != null) {
+			return toInheritedComponentDef(parent.getComponentDef(type, name));
+		}
+
+		return compDef;
+	}
+
+	/**
+	 * Returns the pooled definition the given instance has been created for or null if there is none.
+	 * <br/>Unnamed components are looked up by the class of the instance and then by its ancestors,
+	 * as providers may return subclasses of the defined type.
+	 */
+	private ComponentDef getPooledComponentDef(Object component, String name) {
+		for (Class<?> type = component.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+			ComponentDef componentDef;
+			try {
+				componentDef = getComponentDef(type, name);
+			}
+			catch (AmbigousComponentException e) {
+				componentDef = null;
+			}
+			if (componentDef != null && componentDef.getType().isInstance(component)) {
+				return componentDef.getScope() == Scope.POOLED ? componentDef : null;
+			}
+			if (name != null) {
+				break;
 			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the copy of the given definition of the parent injector if this injector made one, else the definition itself.
+	 */
+	private ComponentDef toInheritedComponentDef(ComponentDef parentDef) {
+		return parentDef != null ? components[parentDef.getId()] : null;
+	}
+
+	/**
+	 * Returns true if the given definition has been defined by this injector or copied from the parent injector.
+	 */
+	private boolean isOwnComponentDef(ComponentDef componentDef) {
+		int id = componentDef.getId();
+		return id >= firstComponentId || parent.components[id] != componentDef;
+	}
+
+	/**
+	 * Copies all inherited definitions which would inject something else than the given new definition of this injector.
+	 * <br/>Inherited definitions have been resolved by the parent, so the copies are resolved again by this injector.
+	 * Definitions depending on copied definitions are copied as well.
+	 * <br/>Must be called while holding the definition lock, after the given definition has been registered.
+	 */
+	private void copyShadowedComponentDefs(ComponentDef componentDef) {
+		Set<Class<?>> supertypes = new HashSet<>();
+		collectSupertypes(componentDef.getType(), supertypes);
 
-			// collect Inject fields
-			Field[] fields = c.getDeclaredFields();
-			for (int i = 0; i < fields.length; i++) {
-				Field field = fields[i];
-				Inject injectAnnotation = field.getAnnotation(Inject.class);
-				if (injectAnnotation != null) {
-					String injectionName = injectAnnotation.value();
-					if ("".equals(injectionName)) {
-						injectionName = null;
+		// find inherited definitions injecting a shadowed dependency and index all inherited dependents
+		ComponentDef[] parentDefs = parent.components;
+		Set<ComponentDef> shadowed = new LinkedHashSet<>();
+		Map<ComponentDef, List<ComponentDef>> dependentsByDef = new HashMap<>();
+		for (int id = 0; id < firstComponentId; id++) {
+			ComponentDef parentDef = parentDefs[id];
+			if (parentDef == null || components[id] != parentDef) {
+				continue;
+			}
+			for (Injection[] injections : new Injection[][] {parentDef.getConstructorInjections(), parentDef.getInjections()}) {
+				for (Injection injection : injections) {
+					if (isShadowedBy(injection, componentDef, supertypes)) {
+						shadowed.add(parentDef);
 					}
-					Injection injection = new Injection(field, injectionName);
-					field.setAccessible(true);
-					injections.add(injection);
+					Injection.Resolution resolution = injection.getResolution();
+					if (resolution != null) {
+						for (ComponentDef injectionDef : resolution.getComponentDefs()) {
+							dependentsByDef.computeIfAbsent(injectionDef, def -> new ArrayList<>()).add(parentDef);
+						}
+					}
+				}
+			}
+		}
+		if (shadowed.isEmpty()) {
+			return;
+		}
+
+		Deque<ComponentDef> pending = new ArrayDeque<>(shadowed);
+		while (!pending.isEmpty()) {
+			for (ComponentDef dependent : dependentsByDef.getOrDefault(pending.poll(), Collections.emptyList())) {
+				if (shadowed.add(dependent)) {
+					pending.add(dependent);
 				}
 			}
+		}
 
-			c = c.getSuperclass();
+		ComponentDef[] changedComponents = components.clone();
+		for (ComponentDef parentDef : shadowed) {
+			ComponentDef copy = createComponentDef(parentDef.getType(), parentDef.getName(),
+				parentDef.getConstructor() != null ? null : parentDef.getProvider(), parentDef.getScope());
+			registerComponentDef(copy, parentDef.getKey());
+			changedComponents[parentDef.getId()] = copy;
 		}
+		components = changedComponents;
+	}
 
-		if (name == null) {
-			unnamedComponents.add(componentDef);
-			unnamedComponentsByType.put(type, componentDef);
+	/**
+	 * Returns true if this injector resolves the given inherited injection point differently than the parent,
+	 * now that the given definition has been added.
+	 */
+	private static boolean isShadowedBy(Injection injection, ComponentDef componentDef, Set<Class<?>> supertypes) {
+		if (injection.isMultiple()) {
+			return supertypes.contains(injection.getType()) && (injection.getKind() != Injection.Kind.MAP || componentDef.getName() != null);
 		}
-		else {
-			componentsByName.put(name, componentDef);
+		if (componentDef.getName() != null) {
+			return componentDef.getName().equals(injection.getName());
 		}
+		return injection.getName() == null && supertypes.contains(injection.getType());
 	}
 
-	private <T> void injectDependencies(T component, ComponentDef componentDef) {
-		// inject field values
-		List<Injection> injections = componentDef.getInjections();
-		int size = injections.size();
-		for (int i = 0; i < size; i++) {
-			Injection injection = injections.get(i);
-			Field field = injection.getField();
-			Class<?> injectionType = field.getType();
+	/**
+	 * Registers the given unnamed component for lookups by its own type and all its ancestors.
+	 * <br/>Exact type matches always take precedence, ancestors matched by more than one component are marked as ambigous.
+	 * <br/>Must be called while holding the definition lock, index entries are replaced atomically for concurrent readers.
+	 */
+	private void indexAssignableTypes(ComponentDef componentDef) {
+		Class<?> type = componentDef.getType();
+		componentsByAssignableType.put(type, componentDef);
+
+		Set<Class<?>> supertypes = new HashSet<>();
+		collectSupertypes(type, supertypes);
+		for (Class<?> supertype : supertypes) {
+			if (supertype == type || unnamedComponentsByType.containsKey(supertype)) {
+				continue;
+			}
+			ComponentDef existingDef = componentsByAssignableType.putIfAbsent(supertype, componentDef);
+			if (existingDef != null) {
+				componentsByAssignableType.put(supertype, AMBIGOUS);
+			}
+		}
+	}
 
-			// get definition for dependency
-			ComponentDef injectionDef = injection.getComponentDef();
-			if (injectionDef == null) {
-				injectionDef = getComponentDef(injectionType, injection.getName());
-				if (injectionDef == null) {
-					throw new RuntimeException("no component of type [" + injectionType + "] defined for injection into [" + componentDef.getType() + "]");
+	/**
+	 * Rebuilds the assignable type index entries of the given removed unnamed component.
+	 * <br/>Only the ancestors of the removed type are looked at, each of them is matched against the remaining components.
+	 * <br/>Must be called while holding the definition lock.
+	 */
+	private void unindexAssignableTypes(ComponentDef componentDef) {
+		Set<Class<?>> supertypes = new HashSet<>();
+		collectSupertypes(componentDef.getType(), supertypes);
+		for (Class<?> supertype : supertypes) {
+			ComponentDef match = unnamedComponentsByType.get(supertype);
+			if (match == null) {
+				for (ComponentDef unnamedDef : unnamedComponentsByType.values()) {
+					if (supertype.isAssignableFrom(unnamedDef.getType())) {
+						if (match != null) {
+							match = AMBIGOUS;
+							break;
+						}
+						match = unnamedDef;
+					}
 				}
-				injection.setComponentDef(injectionDef);
-			}
-
-			// optionally return existing singleton
-			if (injectionDef.isSingleton()) {
-				synchronized (injectionDef.singletonLock) {
-					T injectionValue = (T)injectionDef.getSingletonRef();
-					if (injectionValue == null) {
-						Provider<?> provider = injectionDef.getProvider();
-						injectionValue = (T)provider.provide();
-						injectionDef.setSingletonRef(injectionValue);
-						injectDependencies(injectionValue, injectionDef);
-						setField(component, field, injectionValue);
-						postConstruct(injectionDef, injectionValue);
-					} else {
-						setField(component, field, injectionValue);
+			}
+			if (match != null) {
+				componentsByAssignableType.put(supertype, match);
+			}
+			else {
+				componentsByAssignableType.remove(supertype);
+			}
+		}
+	}
+
+	private static void collectIndexEntries(Class<?> type, Map<Class<?>, MetadataIndex.ClassEntry> entries) {
+		for (Class<?> level = type; level != null && level != Object.class; level = level.getSuperclass()) {
+			MetadataIndex.ClassEntry entry = ClassMetadata.forType(level).getIndexEntry();
+			if (entry != null) {
+				entries.putIfAbsent(level, entry);
+			}
+		}
+	}
+
+	/**
+	 * Collects the singletons the given component depends on, looking through non-singleton dependencies.
+	 */
+	private void collectSingletonDependencies(ComponentDef componentDef, List<ComponentDef> dependencies, Set<ComponentDef> visited) {
+		if (!visited.add(componentDef)) {
+			return;
+		}
+
+		collectSingletonDependencies(componentDef, componentDef.getConstructorInjections(), dependencies, visited);
+		collectSingletonDependencies(componentDef, componentDef.getInjections(), dependencies, visited);
+	}
+
+	private void collectSingletonDependencies(ComponentDef componentDef, Injection[] injections, List<ComponentDef> dependencies,
+			Set<ComponentDef> visited) {
+		for (int i = 0; i < injections.length; i++) {
+			Injection.Resolution resolution = resolveInjection(componentDef, injections[i]);
+			if (!injections[i].isEager()) {
+				continue;
+			}
+			for (ComponentDef injectionDef : resolution.getComponentDefs()) {
+				if (injectionDef.isSingleton()) {
+					if (!dependencies.contains(injectionDef)) {
+						dependencies.add(injectionDef);
 					}
 				}
-			} else {
-				Provider<?> provider = injectionDef.getProvider();
-				T injectionValue = (T)provider.provide();
-				injectDependencies(injectionValue, injectionDef);
-				setField(component, field, injectionValue);
-				postConstruct(injectionDef, injectionValue);
+				else {
+					collectSingletonDependencies(injectionDef, dependencies, visited);
+				}
 			}
 		}
 	}
 
-	private ComponentDef getComponentDef(Class<?> type, String name) {
-		// look for named component
-		if (name != null) {
-			ComponentDef compDef = componentsByName.get(name);
-			return compDef;
+	/**
+	 * Schedules creation of the given singleton after all its dependencies.
+	 * <br/>Dependencies on singletons currently being scheduled are cyclic and left to the recursive creation.
+	 */
+	private CompletableFuture<Void> scheduleSingleton(ComponentDef componentDef, Map<ComponentDef, List<ComponentDef>> dependenciesBySingleton,
+			Map<ComponentDef, CompletableFuture<Void>> futures, Set<ComponentDef> path, Executor executor) {
+		CompletableFuture<Void> future = futures.get(componentDef);
+		if (future != null) {
+			return future;
 		}
 
-		// look for unnamed component
-		ComponentDef compDef = unnamedComponentsByType.get(type);
-		if (compDef != null) {
-			return compDef;
+		path.add(componentDef);
+		List<CompletableFuture<Void>> dependencyFutures = new ArrayList<>();
+		for (ComponentDef dependency : dependenciesBySingleton.get(componentDef)) {
+			if (!path.contains(dependency)) {
+				dependencyFutures.add(scheduleSingleton(dependency, dependenciesBySingleton, futures, path, executor));
+			}
+		}
+		path.remove(componentDef);
+
+		future = CompletableFuture.allOf(dependencyFutures.toArray(new CompletableFuture<?>[dependencyFutures.size()]))
+			.thenRunAsync(() -> getComponent(componentDef), executor);
+		futures.put(componentDef, future);
+		return future;
+	}
+
+	/**
+	 * Schedules destruction of the given singleton after all its dependents and the cached instances, no matter whether they failed.
+	 * <br/>Dependents currently being scheduled are cyclic and destroyed in any order.
+	 */
+	private CompletableFuture<Void> scheduleDestruction(ComponentDef componentDef, Map<ComponentDef, List<ComponentDef>> dependentsBySingleton,
+			Map<ComponentDef, CompletableFuture<Void>> futures, Set<ComponentDef> path, CompletableFuture<Void> cachesCleared, Executor executor) {
+		CompletableFuture<Void> future = futures.get(componentDef);
+		if (future != null) {
+			return future;
 		}
 
-		// look for matching (unnamed) descendant component definitions
-		int matchCount = 0;
-		int size = unnamedComponents.size();
-		for (int i = 0; i < size; i++) {
-			ComponentDef tempDef = unnamedComponents.get(i);
-			if (type.isAssignableFrom(tempDef.getType())) {
-				compDef = tempDef;
-				matchCount++;
+		path.add(componentDef);
+		List<CompletableFuture<?>> dependentFutures = new ArrayList<>();
+		dependentFutures.add(cachesCleared.exceptionally(e -> null));
+		for (ComponentDef dependent : dependentsBySingleton.get(componentDef)) {
+			if (!path.contains(dependent)) {
+				dependentFutures.add(scheduleDestruction(dependent, dependentsBySingleton, futures, path, cachesCleared, executor).exceptionally(e -> null));
 			}
 		}
-		if (matchCount > 1) {
-			throw new AmbigousComponentException("multiple components for injection [" + type + "] [" + name + "]");
+		path.remove(componentDef);
+
+		future = CompletableFuture.allOf(dependentFutures.toArray(new CompletableFuture<?>[dependentFutures.size()]))
+			.thenRunAsync(() -> destroySingleton(componentDef), executor);
+		futures.put(componentDef, future);
+		return future;
+	}
+
+	/**
+	 * Remembers the given singleton for destruction by the injector owning its definition.
+	 */
+	private void registerSingleton(ComponentDef componentDef) {
+		Injector owner = this;
+		while (!owner.isOwnComponentDef(componentDef)) {
+			owner = owner.parent;
 		}
+		owner.createdSingletons.add(componentDef);
+	}
 
-		return compDef;
+	/**
+	 * Drops the cached instances of all components defined by this injector, destroying the strongly referenced ones.
+	 * <br/>All caches are cleared even if some destruction fails, the first failure is rethrown afterwards.
+	 */
+	private void clearCaches() {
+		Set<ComponentCache> caches = new LinkedHashSet<>();
+		ComponentDef[] defs = components;
+		for (int id = 0; id < defs.length; id++) {
+			if (defs[id] != null && defs[id].getCache() != null && isOwnComponentDef(defs[id])) {
+				caches.add(defs[id].getCache());
+			}
+		}
+
+		RuntimeException failure = null;
+		for (ComponentCache cache : caches) {
+			try {
+				cache.clear();
+			}
+			catch (RuntimeException e) {
+				if (failure == null) {
+					failure = e;
+				}
+				else {
+					failure.addSuppressed(e);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
 	}
 
-	private <T> void postConstruct(ComponentDef componentDef, T component) {
-		Method postConstruct = componentDef.getPostConstruct();
-		if (postConstruct != null) {
+	private static void destroySingleton(ComponentDef componentDef) {
+		Object component = componentDef.getSingletonRef();
+		componentDef.setSingletonRef(null);
+		MethodHandle preDestroy = componentDef.getPreDestroy();
+		if (component != null && preDestroy != null) {
 			try {
-				postConstruct.setAccessible(true);
-				postConstruct.invoke(component);
+				preDestroy.invokeExact(component);
 			}
-			catch (Exception e) {
-				throw new RuntimeException("postConstruct", e);
+			catch (Throwable e) {
+				throw new RuntimeException("preDestroy " + componentDef, e);
 			}
 		}
 	}
 
-	private <T> void setField(T component, Field field, T injectionValue) {
-		try {
-			field.set(component, injectionValue);
+	private void checkCycles(ComponentDef componentDef, List<ComponentDef> path, Set<ComponentDef> checked, List<String> problems) {
+		if (componentDef == null) {
+			return;
 		}
-		catch (Exception e) {
-			throw new RuntimeException("injectDependencies", e);
+
+		int cycleStart = path.indexOf(componentDef);
+		if (cycleStart >= 0) {
+			StringBuilder msg = new StringBuilder("cyclic dependency ");
+			for (int i = cycleStart; i < path.size(); i++) {
+				msg.append(path.get(i)).append(" -> ");
+			}
+			problems.add(msg.append(componentDef).toString());
+			return;
+		}
+		if (!checked.add(componentDef)) {
+			return;
+		}
+
+		path.add(componentDef);
+		checkCycles(componentDef.getConstructorInjections(), path, checked, problems);
+
+		// singletons are visible to their own field dependencies once constructed
+		if (!componentDef.isSingleton()) {
+			checkCycles(componentDef.getInjections(), path, checked, problems);
+		}
+		path.remove(path.size() - 1);
+	}
+
+	private void checkCycles(Injection[] injections, List<ComponentDef> path, Set<ComponentDef> checked, List<String> problems) {
+		for (int i = 0; i < injections.length; i++) {
+			if (injections[i].isEager()) {
+				for (ComponentDef injectionDef : injections[i].getResolution().getComponentDefs()) {
+					checkCycles(injectionDef, path, checked, problems);
+				}
+			}
+		}
+	}
+
+	private static void collectSupertypes(Class<?> type, Set<Class<?>> supertypes) {
+		if (type == null || !supertypes.add(type)) {
+			return;
+		}
+		collectSupertypes(type.getSuperclass(), supertypes);
+		for (Class<?> i : type.getInterfaces()) {
+			collectSupertypes(i, supertypes);
+		}
+	}
+
+	/**
+	 * Splits batch creation of prototypes into ranges for parallel processing.
+	 */
+	private final class BatchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		BatchTask(ComponentDef componentDef, Object[] singletons, Object[] target, int from, int to) {
+			this.componentDef = componentDef;
+			this.singletons = singletons;
+			this.target = target;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_BATCH_THRESHOLD) {
+				createComponents(componentDef, singletons, target, from, to);
+			}
+			else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new BatchTask(componentDef, singletons, target, from, middle),
+					new BatchTask(componentDef, singletons, target, middle, to));
+			}
+		}
+
+		private final ComponentDef componentDef;
+		private final Object[] singletons;
+		private final Object[] target;
+		private final int from;
+		private final int to;
+	}
+
+	private final class MembersTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		MembersTask(Object[] targets, int from, int to) {
+			this.targets = targets;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_BATCH_THRESHOLD) {
+				injectMembers(targets, from, to);
+			}
+			else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new MembersTask(targets, from, middle), new MembersTask(targets, middle, to));
+			}
+		}
+
+		private final Object[] targets;
+		private final int from;
+		private final int to;
+	}
+
+	private ComponentMetrics createMetrics(ComponentDef componentDef) {
+		if (!metricsEnabled) {
+			return null;
+		}
+		return new ComponentMetrics(componentDef.getType(), componentDef.getName(), componentDef.getScope());
+	}
+
+	private static Scope toScope(boolean singleton) {
+		return singleton ? Scope.SINGLETON : Scope.PROTOTYPE;
+	}
+
+	private void checkNotFrozen() {
+		if (frozen) {
+			throw new RuntimeException("injector is frozen");
+		}
+	}
+
+	private void postConstruct(ComponentDef componentDef, Object component) {
+		MethodHandle postConstruct = componentDef.getPostConstruct();
+		if (postConstruct != null) {
+			ComponentMetrics metrics = componentDef.getMetrics();
+			Object event = FLIGHT_RECORDER != null ? FLIGHT_RECORDER.beginPostConstruct() : null;
+			long start = metrics != null ? System.nanoTime() : 0;
+			try {
+				postConstruct.invokeExact(component);
+			}
+			catch (Throwable e) {
+				throw new RuntimeException("postConstruct", e);
+			}
+			finally {
+				if (event != null) {
+					FLIGHT_RECORDER.endPostConstruct(event, componentDef);
+				}
+			}
+			if (metrics != null) {
+				metrics.getPostConstructTime().record(System.nanoTime() - start);
+			}
 		}
 	}
 
-	private List<ComponentDef> unnamedComponents;
+	public static final int DEFAULT_POOL_CAPACITY = 64;
+
+	/**
+	 * Flight Recorder events or null if the runtime does not support custom events.
+	 */
+	private static final FlightRecorder FLIGHT_RECORDER = FlightRecorder.load();
+
+	/**
+	 * Minimum number of objects for creating or injecting them in parallel.
+	 * <br/>Smaller batches are processed by the calling thread without using the pool.
+	 * Parallel batches are split into ranges of at most this many objects, each processed by one task.
+	 */
+	public static final int PARALLEL_BATCH_THRESHOLD = 1024;
+
+	private static final ComponentDef[] NO_COMPONENTS = new ComponentDef[0];
+
+	/**
+	 * Placeholder for dependencies resolved while creating the component.
+	 */
+	private static final CompletableFuture<Object> UNRESOLVED = CompletableFuture.completedFuture(null);
+
+	/**
+	 * Marks ambigous entries of the assignable type index.
+	 */
+	private static final ComponentDef AMBIGOUS = new ComponentDef(Object.class, null, null);
+
 	private Map<Class<?>, ComponentDef> unnamedComponentsByType;
 	private Map<String, ComponentDef> componentsByName;
+	private Map<Class<?>, ComponentDef> componentsByAssignableType;
+	private volatile ClassValue<ComponentDef> membersPlans = newMembersPlans();
+
+	/**
+	 * Weakly held classes of the cached injection plans, for writing the metadata index.
+	 */
+	private final Set<Class<?>> membersPlanTypes = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+	/**
+	 * Injection points by the definition they have been resolved to, maintained until the injector is frozen.
+	 */
+	private final Map<ComponentDef, Set<Injection>> dependentsByComponent = new ConcurrentHashMap<>();
+
+	/**
+	 * Resolved collection injection points by element type, maintained until the injector is frozen.
+	 */
+	private final Map<Class<?>, Set<Injection>> collectionsByType = new ConcurrentHashMap<>();
+
+	/**
+	 * Incremented whenever a definition is added, while holding the definition lock.
+	 */
+	private volatile int definitionVersion;
+
+	/**
+	 * Strongly connected component of the eager dependency graph by component, replaced whenever definitions change.
+	 */
+	private volatile Map<ComponentDef, Object> cycles = new ConcurrentHashMap<>();
+	private volatile ComponentDef[] components;
+	private final ReentrantLock definitionLock = new ReentrantLock();
+	private final Injector parent;
+	private final int firstComponentId;
+	private volatile boolean frozen;
+	private int poolCapacity = DEFAULT_POOL_CAPACITY;
+	private ComponentCache cache = new ComponentCache(CachePolicy.DEFAULT);
+	private boolean metricsEnabled;
+	private final ThreadLocal<ComponentScope> scopes = ThreadLocal.withInitial(ComponentScope::new);
+	private final Deque<ComponentDef> createdSingletons = new ConcurrentLinkedDeque<>();
 }
@@ -0,0 +1,113 @@
+package de.voodoosoft.blackcat;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of durations in nanoseconds.
+ * <p/>
+ * Durations are counted in power-of-two buckets, so recording is cheap and never allocates,
+ * while percentiles are accurate within a factor of two.
+ */
+public class LatencyHistogram {
+	LatencyHistogram() {
+		buckets = new AtomicLongArray(BUCKET_COUNT);
+		totalNanos = new LongAdder();
+		maxNanos = new LongAccumulator(Math::max, 0);
+	}
+
+	void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+	}
+
+	/**
+	 * Returns the number of recorded durations.
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			count += buckets.get(i);
+		}
+		return count;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	public double getMeanNanos() {
+		long count = getCount();
+		return count == 0 ? 0 : (double)getTotalNanos() / count;
+	}
+
+	/**
+	 * Returns an upper bound for the given percentile of all recorded durations.
+	 *
+	 * @param percentile percentile between 0 and 100
+	 * @return duration in nanoseconds
+	 */
+	public long getPercentileNanos(double percentile) {
+		long[] counts = getBucketCounts();
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			count += counts[i];
+		}
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = (long)Math.ceil(count * percentile / 100.0);
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if (seen >= rank && counts[i] > 0) {
+				return Math.min(getBucketUpperBound(i), getMaxNanos());
+			}
+		}
+		return getMaxNanos();
+	}
+
+	/**
+	 * Returns the number of durations per bucket.
+	 * <br/>Bucket <code>i</code> counts durations of <code>i</code> significant bits,
+	 * that is durations up to {@link #getBucketUpperBound(int)}.
+	 */
+	public long[] getBucketCounts() {
+		long[] counts = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets.get(i);
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the largest duration counted by the given bucket.
+	 */
+	public static long getBucketUpperBound(int bucket) {
+		return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + getCount() + " mean=" + (long)getMeanNanos() + "ns p99=" + getPercentileNanos(99) + "ns max=" + getMaxNanos() + "ns";
+	}
+
+	/**
+	 * Number of buckets, one for zero and one for each possible bit length of a positive long.
+	 */
+	public static final int BUCKET_COUNT = 64;
+
+	private final AtomicLongArray buckets;
+	private final LongAdder totalNanos;
+	private final LongAccumulator maxNanos;
+}
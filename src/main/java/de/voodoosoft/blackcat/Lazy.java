@@ -0,0 +1,22 @@
+package de.voodoosoft.blackcat;
+
+/**
+ * Defers creation of an injected dependency until it is used for the first time.
+ * <p/>
+ * Fields of type <code>Lazy</code> annotated with {@link Inject} receive a reference bound to the dependency definition,
+ * the dependency itself is requested on the first call to {@link #get()} and returned by all further calls.
+ * <br/>Fields of type {@link Provider} can be injected as well, requesting the dependency on every call instead.
+ * <pre>
+ * {@code
+ * public class Band {
+ *    {@literal @}Inject
+ *    private Lazy<Bass> bass;
+ * }
+ * }
+ * </pre>
+ *
+ * @param <T> dependency type
+ */
+public interface Lazy<T> {
+	T get();
+}
@@ -0,0 +1,33 @@
+package de.voodoosoft.blackcat;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Internal {@link Lazy} implementation bound to a resolved dependency.
+ * <p/>
+ * Once the dependency has been requested, {@link #get()} is a single field read.
+ * Concurrent first calls agree on one instance.
+ */
+class LazyComponent implements Lazy<Object> {
+	public LazyComponent(Provider<?> provider) {
+		this.provider = provider;
+	}
+
+	@Override
+	public Object get() {
+		Object component = value;
+		if (component == null) {
+			component = provider.provide();
+			if (!VALUE.compareAndSet(this, null, component)) {
+				component = value;
+			}
+		}
+		return component;
+	}
+
+	private static final AtomicReferenceFieldUpdater<LazyComponent, Object> VALUE =
+		AtomicReferenceFieldUpdater.newUpdater(LazyComponent.class, Object.class, "value");
+
+	private final Provider<?> provider;
+	private volatile Object value;
+}
@@ -0,0 +1,60 @@
+package de.voodoosoft.blackcat;
+
+/**
+ * Reflection-free injector for the declared members of one component class.
+ * <p/>
+ * Implementations are generated at compile time by the optional blackcat annotation processor
+ * and named after the component class with the suffix {@link #SUFFIX}, e.g. <code>Bass_MembersInjector</code>.
+ * <br/>The injector picks them up automatically and falls back to reflection for classes without a generated injector.
+ * <br/>Injected superclass members are handled by the superclass' own members injector.
+ * <br/>Callbacks are invoked one by one, so that the injector can skip ancestor callbacks overridden by a subclass.
+ *
+ * @param <T> component type
+ */
+public interface MembersInjector<T> {
+	String SUFFIX = "_MembersInjector";
+
+	/**
+	 * Returns the dependency types of all declared injection points, in injection order.
+	 */
+	Class<?>[] getInjectionTypes();
+
+	/**
+	 * Returns the component names of all declared injection points, null for unnamed dependencies.
+	 */
+	String[] getInjectionNames();
+
+	/**
+	 * Sets the injection point with the given index.
+	 *
+	 * @param component component to inject into
+	 * @param index index of the injection point
+	 * @param dependency dependency to inject
+	 */
+	void inject(T component, int index, Object dependency);
+
+	/**
+	 * Returns the method names of all declared {@link PostConstruct} callbacks, in invocation order.
+	 * <br/>Names are null for static callbacks, which cannot be overridden by subclasses.
+	 */
+	String[] getPostConstructNames();
+
+	/**
+	 * Invokes the {@link PostConstruct} callback with the given index.
+	 */
+	void postConstruct(T component, int index);
+
+	/**
+	 * Returns the method names of all declared {@link Reset} callbacks, in invocation order.
+	 */
+	String[] getResetNames();
+
+	void reset(T component, int index);
+
+	/**
+	 * Returns the method names of all declared {@link PreDestroy} callbacks, in invocation order.
+	 */
+	String[] getPreDestroyNames();
+
+	void preDestroy(T component, int index);
+}
@@ -0,0 +1,171 @@
+package de.voodoosoft.blackcat;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Internal persisted form of the annotation scans of {@link ClassMetadata}.
+ * <p/>
+ * Stores the names of the injected fields and callback methods declared by each class level, so classes can be
+ * set up by looking up only these members instead of parsing the annotations of all members.
+ * <br/>The index is stored with the build id of the indexed classes and only loaded for the same build id, so classes are
+ * validated once per index instead of once per class. Synthetic classes are not indexed, their names are not stable.
+ * <p/>
+ * Binary layout, all numbers big endian:
+ * <pre>
+ * int magic, int version, string build id, int class count
+ * per class:  string class name, u2 field count, u2 method count
+ * per field:  string field name, string injection name
+ * per method: string method name, byte callback kinds
+ * string:     u2 length of UTF-8 bytes or 0xFFFF for null, UTF-8 bytes
+ * </pre>
+ */
+final class MetadataIndex {
+	private MetadataIndex(Map<String, ClassEntry> entries) {
+		this.entries = entries;
+	}
+
+	/**
+	 * Reads the index from the given file.
+	 *
+	 * @param buildId build id of the classes to set up
+	 * @return index or null if the file has been written for another build id, by an incompatible version or is truncated
+	 */
+	public static MetadataIndex load(Path path, String buildId) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+		try {
+			if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+				|| !buildId.equals(readString(buffer))) {
+				return null;
+			}
+
+			int classCount = buffer.getInt();
+			Map<String, ClassEntry> entries = new HashMap<>();
+			for (int i = 0; i < classCount; i++) {
+				String className = readString(buffer);
+				String[] fieldNames = new String[buffer.getShort() & 0xFFFF];
+				String[] injectionNames = new String[fieldNames.length];
+				String[] methodNames = new String[buffer.getShort() & 0xFFFF];
+				byte[] callbackKinds = new byte[methodNames.length];
+				for (int j = 0; j < fieldNames.length; j++) {
+					fieldNames[j] = readString(buffer);
+					injectionNames[j] = readString(buffer);
+				}
+				for (int j = 0; j < methodNames.length; j++) {
+					methodNames[j] = readString(buffer);
+					callbackKinds[j] = buffer.get();
+				}
+				entries.put(className, new ClassEntry(fieldNames, injectionNames, methodNames, callbackKinds));
+			}
+			return new MetadataIndex(entries);
+		}
+		catch (BufferUnderflowException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the given entries to the given file, replacing any existing index.
+	 * <br/>Synthetic classes are left out.
+	 *
+	 * @param buildId build id of the given classes
+	 */
+	public static void write(Path path, String buildId, Map<Class<?>, ClassEntry> entries) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, buildId);
+			int classCount = 0;
+			for (Class<?> type : entries.keySet()) {
+				if (!type.isSynthetic()) {
+					classCount++;
+				}
+			}
+			out.writeInt(classCount);
+			for (Map.Entry<Class<?>, ClassEntry> entry : entries.entrySet()) {
+				if (entry.getKey().isSynthetic()) {
+					continue;
+				}
+				ClassEntry classEntry = entry.getValue();
+				writeString(out, entry.getKey().getName());
+				out.writeShort(classEntry.fieldNames.length);
+				out.writeShort(classEntry.methodNames.length);
+				for (int i = 0; i < classEntry.fieldNames.length; i++) {
+					writeString(out, classEntry.fieldNames[i]);
+					writeString(out, classEntry.injectionNames[i]);
+				}
+				for (int i = 0; i < classEntry.methodNames.length; i++) {
+					writeString(out, classEntry.methodNames[i]);
+					out.writeByte(classEntry.callbackKinds[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the entry of the given class or null if it is not indexed.
+	 */
+	public ClassEntry get(Class<?> type) {
+		return entries.get(type.getName());
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getShort() & 0xFFFF;
+		if (length == NULL_STRING) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeShort(NULL_STRING);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length >= NULL_STRING) {
+			throw new IOException("name too long [" + value + "]");
+		}
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Injected fields and callback methods declared by one class level.
+	 */
+	static final class ClassEntry {
+		ClassEntry(String[] fieldNames, String[] injectionNames, String[] methodNames, byte[] callbackKinds) {
+			this.fieldNames = fieldNames;
+			this.injectionNames = injectionNames;
+			this.methodNames = methodNames;
+			this.callbackKinds = callbackKinds;
+		}
+
+		final String[] fieldNames;
+		/** component names of the injected fields, null for unnamed dependencies */
+		final String[] injectionNames;
+		final String[] methodNames;
+		/** combination of {@link #POST_CONSTRUCT}, {@link #RESET} and {@link #PRE_DESTROY} per method */
+		final byte[] callbackKinds;
+	}
+
+	static final byte POST_CONSTRUCT = 1;
+	static final byte RESET = 2;
+	static final byte PRE_DESTROY = 4;
+
+	private static final int MAGIC = 0x42434D49;
+	private static final int VERSION = 3;
+	private static final int NULL_STRING = 0xFFFF;
+
+	private final Map<String, ClassEntry> entries;
+}
@@ -11,6 +11,8 @@ import java.lang.annotation.Target;
 /**
  * Defines an optional component initialization method.
  * PostConstruct is invoked after passing the component constructor and having all dependencies injected.
+ * <br/>Methods declared at every class level are invoked, superclass methods first.
+ * A method overridden without annotation is not invoked.
  */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
@@ -0,0 +1,18 @@
+package de.voodoosoft.blackcat;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+
+/**
+ * Defines an optional method for releasing resources held by a singleton component.
+ * PreDestroy is invoked when the {@link Injector} is closed, dependent singletons are destroyed first.
+ * <br/>Methods declared at every class level are invoked, subclass methods first.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PreDestroy {
+}
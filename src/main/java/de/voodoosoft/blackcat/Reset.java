@@ -0,0 +1,18 @@
+package de.voodoosoft.blackcat;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+
+/**
+ * Defines an optional method for resetting pooled components.
+ * Reset is invoked when a component of scope {@link Scope#POOLED} is released back to its pool.
+ * <br/>Methods declared at every class level are invoked, superclass methods first.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Reset {
+}
@@ -0,0 +1,50 @@
+package de.voodoosoft.blackcat;
+
+/**
+ * Defines the lifecycle of component instances.
+ */
+public enum Scope {
+	/**
+	 * Creates a new instance for every request.
+	 */
+	PROTOTYPE,
+
+	/**
+	 * Creates only one instance which is shared by all requests.
+	 */
+	SINGLETON,
+
+	/**
+	 * Re-uses instances given back by {@link Injector#release(Object)} and creates new ones only if the pool is empty.
+	 * <br/>Dependencies of re-used instances are injected again and {@link PostConstruct} is invoked again,
+	 * {@link Reset} is invoked when an instance is released.
+	 */
+	POOLED,
+
+	/**
+	 * Creates one instance per thread.
+	 * <br/>Instances are never shared, so they need no synchronization at all.
+	 */
+	THREAD,
+
+	/**
+	 * Creates one instance per frame or request, delimited by {@link Injector#beginScope()} and {@link Injector#endScope()}.
+	 * <br/>Scopes are bound to the thread that has begun them, requesting a component outside of a scope fails.
+	 * Components of this scope should not be injected into components living longer than one scope.
+	 * <br/>Threads of parallel or asynchronous creation have no active scope, so components of this scope must not be
+	 * reached from {@link Injector#fill(Object[], java.util.concurrent.ForkJoinPool)},
+	 * {@link Injector#injectMembers(java.util.Collection, java.util.concurrent.ForkJoinPool)} or through collection
+	 * injections of {@link Injector#getComponentAsync(Class, java.util.concurrent.Executor)}.
+	 */
+	FRAME,
+
+	/**
+	 * Shares one instance like {@link #SINGLETON}, but lets it be evicted according to the {@link CachePolicy} of the injector.
+	 * <br/>Evicted instances are recreated on the next request.
+	 * <br/>{@link PreDestroy} is invoked for strongly referenced instances when they are evicted, found expired,
+	 * redefined or when the injector is closed. Softly or weakly referenced instances may be cleared by the garbage
+	 * collector at any time, so {@link PreDestroy} is never invoked for them.
+	 * Components of this scope should not be injected into components living longer than the cached instance.
+	 */
+	CACHED
+}
@@ -0,0 +1,34 @@
+package de.voodoosoft.blackcat;
+
+public class Amplifier {
+	private int volume;
+	private int resetCount;
+
+	@Inject
+	private Body body;
+
+	@Reset
+	private void reset() {
+		volume = 0;
+		resetCount++;
+	}
+
+	public Amplifier() {
+	}
+
+	public void setVolume(int volume) {
+		this.volume = volume;
+	}
+
+	public int getVolume() {
+		return volume;
+	}
+
+	public int getResetCount() {
+		return resetCount;
+	}
+
+	public Body getBody() {
+		return body;
+	}
+}
@@ -0,0 +1,20 @@
+package de.voodoosoft.blackcat;
+
+public class Crew {
+	@Inject
+	private Lazy<Bass> spareBass;
+
+	@Inject
+	private Provider<Guitar> guitars;
+
+	public Crew() {
+	}
+
+	public Lazy<Bass> getSpareBass() {
+		return spareBass;
+	}
+
+	public Provider<Guitar> getGuitars() {
+		return guitars;
+	}
+}
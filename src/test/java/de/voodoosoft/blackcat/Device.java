@@ -0,0 +1,19 @@
+package de.voodoosoft.blackcat;
+
+public class Device {
+	@Inject
+	protected Logbook logbook;
+
+	public Device() {
+	}
+
+	@PostConstruct
+	private void connect() {
+		logbook.add("connect " + getClass().getSimpleName());
+	}
+
+	@PreDestroy
+	private void disconnect() {
+		logbook.add("disconnect " + getClass().getSimpleName());
+	}
+}
@@ -0,0 +1,13 @@
+package de.voodoosoft.blackcat;
+
+public class Label {
+	@Inject
+	private Manager manager;
+
+	public Label() {
+	}
+
+	public Manager getManager() {
+		return manager;
+	}
+}
@@ -0,0 +1,23 @@
+package de.voodoosoft.blackcat;
+
+public class LightTechnician extends Technician {
+	@Inject
+	Artist artist;
+
+	int lightCount;
+
+	@Override
+	@PostConstruct
+	void init() {
+		super.init();
+		lightCount++;
+	}
+
+	public Artist getArtist() {
+		return artist;
+	}
+
+	public int getLightCount() {
+		return lightCount;
+	}
+}
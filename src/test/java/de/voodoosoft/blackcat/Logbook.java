@@ -0,0 +1,19 @@
+package de.voodoosoft.blackcat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Logbook {
+	private final List<String> entries = new ArrayList<>();
+
+	public Logbook() {
+	}
+
+	public synchronized void add(String entry) {
+		entries.add(entry);
+	}
+
+	public synchronized List<String> getEntries() {
+		return new ArrayList<>(entries);
+	}
+}
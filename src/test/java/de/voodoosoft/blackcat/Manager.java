@@ -0,0 +1,13 @@
+package de.voodoosoft.blackcat;
+
+public class Manager {
+	@Inject
+	private Label label;
+
+	public Manager() {
+	}
+
+	public Label getLabel() {
+		return label;
+	}
+}
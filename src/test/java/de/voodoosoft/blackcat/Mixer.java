@@ -0,0 +1,23 @@
+package de.voodoosoft.blackcat;
+
+public class Mixer extends Device {
+	@Inject
+	private Speaker speaker;
+
+	public Mixer() {
+	}
+
+	@PostConstruct
+	private void initialize() {
+		logbook.add("initialize Mixer");
+	}
+
+	@PreDestroy
+	private void shutdown() {
+		logbook.add("shutdown Mixer");
+	}
+
+	public Speaker getSpeaker() {
+		return speaker;
+	}
+}
@@ -0,0 +1,30 @@
+package de.voodoosoft.blackcat;
+
+import java.util.List;
+import java.util.Map;
+
+public class Orchestra {
+	@Inject
+	private List<Instrument> instruments;
+
+	@Inject
+	private Instrument[] instrumentArray;
+
+	@Inject
+	private Map<String, Guitar> guitarsByName;
+
+	public Orchestra() {
+	}
+
+	public List<Instrument> getInstruments() {
+		return instruments;
+	}
+
+	public Instrument[] getInstrumentArray() {
+		return instrumentArray;
+	}
+
+	public Map<String, Guitar> getGuitarsByName() {
+		return guitarsByName;
+	}
+}
@@ -0,0 +1,31 @@
+package de.voodoosoft.blackcat;
+
+public class Roadie {
+	@Inject
+	Body body;
+
+	@Inject("LesPaul")
+	Guitar guitar;
+
+	int initCount;
+
+	@PostConstruct
+	void init() {
+		initCount++;
+	}
+
+	public Roadie() {
+	}
+
+	public Body getBody() {
+		return body;
+	}
+
+	public Guitar getGuitar() {
+		return guitar;
+	}
+
+	public int getInitCount() {
+		return initCount;
+	}
+}
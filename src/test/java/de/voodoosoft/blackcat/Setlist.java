@@ -0,0 +1,26 @@
+package de.voodoosoft.blackcat;
+
+public class Setlist {
+	private final Body body;
+	private final Guitar guitar;
+	private final Provider<Bass> bassProvider;
+
+	@Inject
+	public Setlist(Body body, @Inject("LesPaul") Guitar guitar, Provider<Bass> bassProvider) {
+		this.body = body;
+		this.guitar = guitar;
+		this.bassProvider = bassProvider;
+	}
+
+	public Body getBody() {
+		return body;
+	}
+
+	public Guitar getGuitar() {
+		return guitar;
+	}
+
+	public Provider<Bass> getBassProvider() {
+		return bassProvider;
+	}
+}
@@ -0,0 +1,15 @@
+package de.voodoosoft.blackcat;
+
+public class SoundTechnician extends Technician {
+	int soundCount;
+
+	@Override
+	void init() {
+		super.init();
+		soundCount++;
+	}
+
+	public int getSoundCount() {
+		return soundCount;
+	}
+}
@@ -0,0 +1,6 @@
+package de.voodoosoft.blackcat;
+
+public class Speaker extends Device {
+	public Speaker() {
+	}
+}
@@ -0,0 +1,29 @@
+package de.voodoosoft.blackcat;
+
+public class Stagehand {
+	@Inject
+	private Body body;
+
+	private Body spare;
+	private boolean initialized;
+
+	@PostConstruct
+	private void initialize() {
+		initialized = true;
+	}
+
+	public Stagehand() {
+	}
+
+	public Body getBody() {
+		return body;
+	}
+
+	public Body getSpare() {
+		return spare;
+	}
+
+	public boolean isInitialized() {
+		return initialized;
+	}
+}
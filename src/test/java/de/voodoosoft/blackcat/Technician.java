@@ -0,0 +1,31 @@
+package de.voodoosoft.blackcat;
+
+public class Technician {
+	@Inject
+	Body body;
+
+	int initCount;
+	int destroyCount;
+
+	@PostConstruct
+	void init() {
+		initCount++;
+	}
+
+	@PreDestroy
+	void release() {
+		destroyCount++;
+	}
+
+	public Body getBody() {
+		return body;
+	}
+
+	public int getInitCount() {
+		return initCount;
+	}
+
+	public int getDestroyCount() {
+		return destroyCount;
+	}
+}
@@ -1,5 +1,22 @@
 package de.voodoosoft.blackcat;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import junit.framework.TestCase;
 
 
@@ -148,6 +165,47 @@ public class TestLambda extends TestCase {
 		assertTrue(bass1 == bass2);
 	}
 	
+	public void testConcurrentSingleton() throws Exception {
+		Injector injector = new Injector();
+		AtomicInteger created = new AtomicInteger();
+		injector.defineComponent(Concert.class, true, () -> {
+			created.incrementAndGet();
+			return new Concert();
+		});
+		injector.defineComponent(Band.class, true, OneManBand::new);
+		injector.defineComponent(Guitar.class, Guitar::new);
+		injector.defineComponent(Body.class, Body::new);
+		injector.defineComponent(Artist.class, Artist::new);
+
+		int threadCount = 32;
+		Concert[] concerts = new Concert[threadCount];
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			int index = i;
+			threads[i] = new Thread(() -> {
+				try {
+					start.await();
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+				concerts[index] = injector.getComponent(Concert.class);
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(1, created.get());
+		for (Concert concert : concerts) {
+			assertSame(concerts[0], concert);
+			assertNotNull(concert.getBand());
+		}
+	}
+
 	public void testDistinctness() {
 		Injector injector = new Injector();
 		injector.defineComponent(Bass.class,() -> new Bass());
@@ -197,6 +255,28 @@ public class TestLambda extends TestCase {
 		assertNull(band);
 	}
 
+	public void testAncestorLookup() {
+		Injector injector = new Injector();
+
+		injector.defineComponent(ElectricGuitar.class, ElectricGuitar::new);
+		injector.defineComponent(Body.class, Body::new);
+		injector.defineComponent(Artist.class, Artist::new);
+		assertTrue(injector.getComponent(Instrument.class) instanceof ElectricGuitar);
+		assertTrue(injector.getComponent(Guitar.class) instanceof ElectricGuitar);
+
+		// exact type wins over descendant
+		injector.defineComponent(Guitar.class, Guitar::new);
+		assertEquals(Guitar.class, injector.getComponent(Guitar.class).getClass());
+
+		// two descendants of Instrument
+		try {
+			injector.getComponent(Instrument.class);
+			fail("ambigous lookup succeeded");
+		}
+		catch (AmbigousComponentException e) {
+		}
+	}
+
 	public void testInheritedComponents() {
 		Injector injector = new Injector();
 
@@ -222,4 +302,1124 @@ public class TestLambda extends TestCase {
 		assertTrue(collection.getGuitar4().getModel().equals("Dreadnought"));
 
 	}
+
+	public void testClassMetadataCache() {
+		// classes are scanned once, subclasses reuse the metadata of their ancestors
+		ClassMetadata guitarMetadata = ClassMetadata.forType(Guitar.class);
+		assertSame(guitarMetadata, ClassMetadata.forType(Guitar.class));
+		assertNotSame(guitarMetadata, ClassMetadata.forType(ElectricGuitar.class));
+		assertNotSame(guitarMetadata, ClassMetadata.forType(Bass.class));
+		assertSame(guitarMetadata.getPostConstruct(), ClassMetadata.forType(ElectricGuitar.class).getPostConstruct());
+
+		// each definition gets its own unresolved injection points
+		Injector injector = new Injector();
+		injector.defineComponent(Guitar.class, Guitar::new);
+		injector.defineComponent(Body.class, true, Body::new);
+		injector.defineComponent(Artist.class, Artist::new);
+		Body body = injector.getComponent(Guitar.class).getBody();
+		assertSame(guitarMetadata, ClassMetadata.forType(Guitar.class));
+		for (Injection injection : guitarMetadata.createInjections()) {
+			assertNull(injection.getResolution());
+		}
+
+		Injector otherInjector = new Injector();
+		otherInjector.defineComponent(Guitar.class, Guitar::new);
+		otherInjector.defineComponent(Body.class, true, Body::new);
+		otherInjector.defineComponent(Artist.class, Artist::new);
+		assertNotSame(body, otherInjector.getComponent(Guitar.class).getBody());
+		assertSame(body, injector.getComponent(Guitar.class).getBody());
+	}
+
+	public void testFreeze() {
+		Injector injector = new Injector();
+
+		injector.defineComponent(Concert.class, Concert::new);
+		injector.defineComponent(Metalband.class, Metalband::new);
+		injector.defineComponent(Guitar.class, Guitar::new);
+		injector.defineComponent(Body.class, Body::new);
+		injector.defineComponent(Artist.class, Artist::new);
+		injector.freeze();
+		assertTrue(injector.isFrozen());
+
+		Concert concert = injector.getComponent(Concert.class);
+		assertTrue(concert.getBand() instanceof Metalband);
+		assertTrue(injector.getComponent(Band.class) instanceof Metalband);
+		assertTrue(injector.getComponent(Instrument.class) instanceof Guitar);
+
+		try {
+			injector.defineComponent(Bass.class, Bass::new);
+			fail("defined component after freeze");
+		}
+		catch (RuntimeException e) {
+		}
+	}
+
+	public void testFreezeReportsAllProblems() {
+		Injector injector = new Injector();
+
+		// Body is missing, Instrument is ambigous
+		injector.defineComponent(BrokenBand.class, BrokenBand::new);
+		injector.defineComponent(Bass.class, Bass::new);
+		injector.defineComponent(Guitar.class, Guitar::new);
+		injector.defineComponent(Drums.class, Drums::new);
+		injector.defineComponent(Artist.class, Artist::new);
+
+		try {
+			injector.freeze();
+			fail("froze invalid definitions");
+		}
+		catch (RuntimeException e) {
+			assertTrue(e.getMessage().contains(Body.class.getName()));
+			assertTrue(e.getMessage().contains(Instrument.class.getName()));
+		}
+		assertFalse(injector.isFrozen());
+	}
+
+	public void testFreezeReportsCycles() {
+		Injector injector = new Injector();
+		injector.defineComponent(Manager.class, Manager::new);
+		injector.defineComponent(Label.class, Label::new);
+
+		try {
+			injector.freeze();
+			fail("froze cyclic definitions");
+		}
+		catch (RuntimeException e) {
+			assertTrue(e.getMessage().contains("cyclic"));
+		}
+
+		// singletons may refer to each other
+		injector = new Injector();
+		injector.defineComponent(Manager.class, true, Manager::new);
+		injector.defineComponent(Label.class, true, Label::new);
+		injector.freeze();
+
+		Manager manager = injector.getComponent(Manager.class);
+		assertSame(manager, manager.getLabel().getManager());
+	}
+
+	public void testPooled() {
+		Injector injector = new Injector();
+		injector.defineComponent(Amplifier.class, Scope.POOLED, Amplifier::new);
+		injector.defineComponent(Body.class, Body::new);
+
+		Amplifier amp1 = injector.getComponent(Amplifier.class);
+		Body body1 = amp1.getBody();
+		amp1.setVolume(11);
+		injector.release(amp1);
+		assertEquals(0, amp1.getVolume());
+		assertEquals(1, amp1.getResetCount());
+
+		// released instance is re-used with fresh dependencies
+		Amplifier amp2 = injector.getComponent(Amplifier.class);
+		assertSame(amp1, amp2);
+		assertNotNull(amp2.getBody());
+		assertNotSame(body1, amp2.getBody());
+
+		Amplifier amp3 = injector.getComponent(Amplifier.class);
+		assertNotSame(amp2, amp3);
+
+		// a second release would hand out the instance twice
+		injector.release(amp3);
+		try {
+			injector.release(amp3);
+			fail("released component twice");
+		}
+		catch (RuntimeException e) {
+		}
+		assertSame(amp3, injector.getComponent(Amplifier.class));
+		assertNotSame(amp3, injector.getComponent(Amplifier.class));
+
+		// providers may return subclasses of the defined type
+		injector = new Injector();
+		injector.defineComponent(Amplifier.class, Scope.POOLED, () -> new Amplifier() {});
+		injector.defineComponent(Body.class, Body::new);
+		Amplifier custom = injector.getComponent(Amplifier.class);
+		injector.release(custom);
+		assertEquals(1, custom.getResetCount());
+		assertSame(custom, injector.getComponent(Amplifier.class));
+	}
+
+	public void testPoolCapacity() {
+		Injector injector = new Injector();
+		injector.setPoolCapacity(1);
+		injector.defineComponent(Amplifier.class, "Marshall", Scope.POOLED, Amplifier::new);
+		injector.defineComponent(Body.class, Body::new);
+
+		Amplifier amp1 = injector.getComponent(Amplifier.class, "Marshall");
+		Amplifier amp2 = injector.getComponent(Amplifier.class, "Marshall");
+		injector.release(amp1, "Marshall");
+		injector.release(amp2, "Marshall");
+
+		assertSame(amp1, injector.getComponent(Amplifier.class, "Marshall"));
+		Amplifier amp3 = injector.getComponent(Amplifier.class, "Marshall");
+		assertNotSame(amp1, amp3);
+		assertNotSame(amp2, amp3);
+
+		try {
+			injector.release(new Body());
+			fail("released unpooled component");
+		}
+		catch (RuntimeException e) {
+		}
+	}
+
+	public void testThreadScope() throws Exception {
+		Injector injector = new Injector();
+		injector.defineComponent(Bass.class, Scope.THREAD, Bass::new);
+		injector.defineComponent(Body.class, Body::new);
+
+		Bass bass = injector.getComponent(Bass.class);
+		assertSame(bass, injector.getComponent(Bass.class));
+
+		Bass[] otherBass = new Bass[1];
+		Thread thread = new Thread(() -> otherBass[0] = injector.getComponent(Bass.class));
+		thread.start();
+		thread.join();
+		assertNotNull(otherBass[0]);
+		assertNotSame(bass, otherBass[0]);
+	}
+
+	public void testFrameScope() {
+		Injector injector = new Injector();
+		injector.defineComponent(StringBand.class, StringBand::new);
+		injector.defineComponent(Bass.class, Scope.FRAME, Bass::new);
+		injector.defineComponent(Body.class, Body::new);
+
+		try {
+			injector.getComponent(Bass.class);
+			fail("got scoped component without scope");
+		}
+		catch (RuntimeException e) {
+		}
+
+		injector.beginScope();
+		Bass bass = injector.getComponent(Bass.class);
+		assertSame(bass, injector.getComponent(StringBand.class).getBass());
+		injector.endScope();
+
+		injector.beginScope();
+		assertNotSame(bass, injector.getComponent(Bass.class));
+
+		// pool threads have no scope, so parallel creation is rejected up front
+		try {
+			injector.fill(new StringBand[Injector.PARALLEL_BATCH_THRESHOLD], ForkJoinPool.commonPool());
+			fail("created scoped dependencies in parallel");
+		}
+		catch (RuntimeException e) {
+			assertTrue(e.getMessage().contains("scope FRAME"));
+		}
+		List<StringBand> bands = new ArrayList<>();
+		for (int i = 0; i < Injector.PARALLEL_BATCH_THRESHOLD; i++) {
+			bands.add(new StringBand());
+		}
+		try {
+			injector.injectMembers(bands, ForkJoinPool.commonPool());
+			fail("injected scoped dependencies in parallel");
+		}
+		catch (RuntimeException e) {
+			assertTrue(e.getMessage().contains("scope FRAME"));
+		}
+		assertNull(bands.get(0).getBass());
+
+		// sequential creation uses the scope of the calling thread
+		StringBand[] sequentialBands = new StringBand[2];
+		injector.fill(sequentialBands);
+		assertSame(sequentialBands[0].getBass(), sequentialBands[1].getBass());
+		injector.endScope();
+	}
+
+	public void testBatchCreation() {
+		Injector injector = new Injector();
+		injector.defineComponent(Concert.class, Concert::new);
+		injector.defineComponent(Band.class, true, StringBand::new);
+		injector.defineComponent(Bass.class, Bass::new);
+		injector.defineComponent(Body.class, Body::new);
+
+		Concert[] concerts = injector.getComponents(Concert.class, 100);
+		assertEquals(100, concerts.length);
+		Band band = concerts[0].getBand();
+		assertNotNull(band);
+		assertNotSame(concerts[0], concerts[1]);
+		for (Concert concert : concerts) {
+			assertSame(band, concert.getBand());
+		}
+
+		Bass[] basses = new Bass[5000];
+		injector.fill(basses, ForkJoinPool.commonPool());
+		for (Bass bass : basses) {
+			assertNotNull(bass.getBody());
+		}
+		assertNotSame(basses[0].getBody(), basses[4999].getBody());
+	}
+
+	public void testInitializeSingletons() throws Exception {
+		Injector injector = new Injector();
+		AtomicInteger created = new AtomicInteger();
+		injector.defineComponent(Concert.class, true, () -> {
+			created.incrementAndGet();
+			return new Concert();
+		});
+		injector.defineComponent(OneManBand.class, true, () -> {
+			created.incrementAndGet();
+			return new OneManBand();
+		});
+		injector.defineComponent(Guitar.class, Guitar::new);
+		injector.defineComponent(Body.class, true, () -> {
+			created.incrementAndGet();
+			return new Body();
+		});
+		injector.defineComponent(Artist.class, Artist::new);
+		injector.defineComponent(Manager.class, true, Manager::new);
+		injector.defineComponent(Label.class, true, Label::new);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			injector.initializeSingletons(executor).get();
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertEquals(3, created.get());
+
+		Concert concert = injector.getComponent(Concert.class);
+		OneManBand band = (OneManBand)concert.getBand();
+		assertSame(injector.getComponent(Body.class), band.getGuitar().getBody());
+		assertTrue(band.getGuitar().isInitialized());
+		assertEquals(3, created.get());
+
+		Manager manager = injector.getComponent(Manager.class);
+		assertSame(manager, manager.getLabel().getManager());
+	}
+
+	public void testInitializeSingletonsOrder() throws Exception {
+		Injector injector = new Injector();
+		Logbook logbook = new Logbook();
+		injector.defineComponent(Logbook.class, Scope.SINGLETON, () -> logbook);
+		injector.defineComponent(Mixer.class, Scope.SINGLETON, () -> {
+			logbook.add("provide Mixer");
+			return new Mixer();
+		});
+		injector.defineComponent(Speaker.class, Scope.SINGLETON, () -> {
+			logbook.add("provide Speaker");
+			return new Speaker();
+		});
+
+		// independent singletons only get past the latch if they are created at the same time
+		CountDownLatch latch = new CountDownLatch(2);
+		AtomicInteger timeouts = new AtomicInteger();
+		injector.defineComponent(Body.class, Scope.SINGLETON, () -> {
+			awaitTogether(latch, timeouts);
+			return new Body();
+		});
+		injector.defineComponent(Drums.class, Scope.SINGLETON, () -> {
+			awaitTogether(latch, timeouts);
+			return new Drums();
+		});
+		injector.defineComponent(Artist.class);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			injector.initializeSingletons(executor).get(10, TimeUnit.SECONDS);
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertEquals(0, timeouts.get());
+
+		// dependencies are provided and post-constructed before their dependents are provided
+		assertEquals(Arrays.asList("provide Speaker", "connect Speaker", "provide Mixer", "connect Mixer", "initialize Mixer"),
+			logbook.getEntries());
+		assertSame(injector.getComponent(Speaker.class), injector.getComponent(Mixer.class).getSpeaker());
+	}
+
+	private static void awaitTogether(CountDownLatch latch, AtomicInteger timeouts) {
+		latch.countDown();
+		try {
+			if (!latch.await(5, TimeUnit.SECONDS)) {
+				timeouts.incrementAndGet();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public void testLazyInjection() {
+		Injector injector = new Injector();
+		AtomicInteger created = new AtomicInteger();
+		injector.defineComponent(Crew.class, Crew::new);
+		injector.defineComponent(Bass.class, () -> {
+			created.incrementAndGet();
+			return new Bass();
+		});
+		injector.defineComponent(Guitar.class, Guitar::new);
+		injector.defineComponent(Body.class, Body::new);
+		injector.defineComponent(Artist.class, Artist::new);
+
+		Crew crew = injector.getComponent(Crew.class);
+		assertEquals(0, created.get());
+
+		Bass bass = crew.getSpareBass().get();
+		assertNotNull(bass.getBody());
+		assertSame(bass, crew.getSpareBass().get());
+		assertEquals(1, created.get());
+
+		Guitar guitar1 = crew.getGuitars().provide();
+		Guitar guitar2 = crew.getGuitars().provide();
+		assertTrue(guitar1.isInitialized());
+		assertNotSame(guitar1, guitar2);
+	}
+
+	public void testMetrics() {
+		Injector injector = new Injector();
+		injector.defineComponent(Bass.class, Bass::new);
+		injector.defineComponent(Body.class, true, Body::new);
+		assertTrue(injector.getMetrics().isEmpty());
+
+		injector.setMetricsEnabled(true);
+		for (int i = 0; i < 10; i++) {
+			injector.getComponent(Bass.class);
+		}
+		injector.defineComponent(Guitar.class, Guitar::new);
+		injector.defineComponent(Artist.class, Artist::new);
+		injector.getComponent(Guitar.class);
+
+		List<ComponentMetrics> metrics = injector.getMetrics();
+		assertEquals(4, metrics.size());
+		ComponentMetrics bassMetrics = metrics.get(0);
+		assertEquals(Bass.class, bassMetrics.getType());
+		assertEquals(10, bassMetrics.getLookupCount());
+		assertEquals(10, bassMetrics.getCreatedCount());
+		assertEquals(10, bassMetrics.getProviderTime().getCount());
+
+		ComponentMetrics bodyMetrics = metrics.get(1);
+		assertEquals(11, bodyMetrics.getLookupCount());
+		assertEquals(1, bodyMetrics.getCreatedCount());
+		assertEquals(10, bodyMetrics.getSingletonHitCount());
+		assertEquals(1, bodyMetrics.getLockWaitTime().getCount());
+
+		ComponentMetrics guitarMetrics = metrics.get(2);
+		assertEquals(1, guitarMetrics.getPostConstructTime().getCount());
+		LatencyHistogram creationTime = guitarMetrics.getCreationTime();
+		assertTrue(creationTime.getPercentileNanos(50) <= creationTime.getMaxNanos());
+
+		injector.setMetricsEnabled(false);
+		assertTrue(injector.getMetrics().isEmpty());
+	}
+
+	public void testComponentKeys() {
+		Injector injector = new Injector();
+		ComponentKey<Bass> bassKey = injector.defineComponent(Bass.class, Bass::new);
+		ComponentKey<Guitar> lesPaulKey = injector.defineComponent(Guitar.class, "LesPaul", true, () -> new Guitar("LesPaul"));
+		injector.defineComponent(Body.class, Body::new);
+		injector.defineComponent(Artist.class, Artist::new);
+
+		Bass bass = injector.getComponent(bassKey);
+		assertNotNull(bass.getBody());
+		assertNotSame(bass, injector.getComponent(bassKey));
+
+		Guitar lesPaul = injector.getComponent(lesPaulKey);
+		assertEquals("LesPaul", lesPaul.getModel());
+		assertSame(lesPaul, injector.getComponent(lesPaulKey));
+		assertSame(lesPaulKey, injector.getComponentKey(Guitar.class, "LesPaul"));
+		assertSame(bassKey, injector.getComponentKey(Bass.class));
+
+		// keys are bound to their injector
+		Injector otherInjector = new Injector();
+		otherInjector.defineComponent(Bass.class, Bass::new);
+		try {
+			otherInjector.getComponent(bassKey);
+			fail("used foreign key");
+		}
+		catch (RuntimeException e) {
+		}
+	}
+
+	public void testChildInjector() {
+		Injector parent = new Injector();
+		ComponentKey<Body> bodyKey = parent.defineComponent(Body.class, true, Body::new);
+		parent.defineComponent(Bass.class, Bass::new);
+		parent.defineComponent(Guitar.class, "LesPaul", () -> new Guitar("LesPaul"));
+		parent.defineComponent(Artist.class, Artist::new);
+
+		// children share frozen definitions only
+		try {
+			parent.createChild();
+			fail("created child of unfrozen injector");
+		}
+		catch (RuntimeException e) {
+		}
+		assertFalse(parent.isFrozen());
+		parent.freeze();
+
+		Injector child = parent.createChild();
+		assertSame(parent, child.getParent());
+		child.defineComponent(StringBand.class, StringBand::new);
+		child.defineComponent(Guitar.class, "LesPaul", () -> new Guitar("Custom"));
+
+		// parent singletons are shared
+		Body body = parent.getComponent(Body.class);
+		StringBand band = child.getComponent(StringBand.class);
+		assertSame(body, band.getBass().getBody());
+		assertSame(body, child.getComponent(bodyKey));
+
+		// child definitions override and stay private
+		assertEquals("Custom", child.getComponent(Guitar.class, "LesPaul").getModel());
+		assertEquals("LesPaul", parent.getComponent(Guitar.class, "LesPaul").getModel());
+		try {
+			parent.getComponent(StringBand.class);
+			fail("child component visible in parent");
+		}
+		catch (RuntimeException e) {
+		}
+
+		// siblings are independent
+		Injector sibling = parent.createChild();
+		sibling.defineComponent(StringBand.class, StringBand::new);
+		sibling.freeze();
+		assertNotNull(sibling.getComponent(StringBand.class).getBass());
+	}
+
+	public void testChildOverride() {
+		Injector parent = new Injector();
+		parent.defineComponent(Body.class, Scope.SINGLETON);
+		parent.defineComponent(Bass.class);
+		ComponentKey<StringBand> bandKey = parent.defineComponent(StringBand.class, Scope.SINGLETON);
+		parent.defineComponent(Artist.class, Scope.SINGLETON);
+		parent.freeze();
+		StringBand parentBand = parent.getComponent(StringBand.class);
+
+		// inherited components see the override, even through other inherited components
+		Injector child = parent.createChild();
+		Body childBody = new Body();
+		child.defineComponent(Body.class, Scope.SINGLETON, () -> childBody);
+		assertSame(childBody, child.getComponent(Bass.class).getBody());
+		StringBand childBand = child.getComponent(bandKey);
+		assertNotSame(parentBand, childBand);
+		assertSame(childBody, childBand.getBass().getBody());
+		assertSame(childBand, child.getComponent(StringBand.class));
+
+		// the parent and its unaffected singletons are left alone
+		assertSame(parentBand, parent.getComponent(StringBand.class));
+		assertNotSame(childBody, parentBand.getBass().getBody());
+		assertSame(parent.getComponent(Artist.class), child.getComponent(Artist.class));
+
+		// collections of inherited components pick up additional implementations of the child
+		parent = new Injector();
+		parent.defineComponent(Orchestra.class, Scope.SINGLETON);
+		parent.defineComponent(Drums.class);
+		parent.defineComponent(Artist.class);
+		parent.freeze();
+		child = parent.createChild();
+		child.defineComponent(Guitar.class, "Telecaster", () -> new Guitar("Telecaster"));
+		child.defineComponent(Body.class);
+		child.freeze();
+		assertEquals(1, parent.getComponent(Orchestra.class).getInstruments().size());
+		assertEquals(2, child.getComponent(Orchestra.class).getInstruments().size());
+		assertEquals("Telecaster", child.getComponent(Orchestra.class).getGuitarsByName().get("Telecaster").getModel());
+	}
+
+	public void testConcurrentDefinition() throws Exception {
+		Injector injector = new Injector();
+		injector.defineComponent(Body.class, true, Body::new);
+		injector.defineComponent(Artist.class, Artist::new);
+
+		int threadCount = 8;
+		int definitionsPerThread = 100;
+		AtomicInteger duplicates = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			int index = i;
+			threads[i] = new Thread(() -> {
+				try {
+					start.await();
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+				for (int j = 0; j < definitionsPerThread; j++) {
+					String name = "Bass" + index + "-" + j;
+					injector.defineComponent(Bass.class, name, Bass::new);
+				}
+				// all threads race for the same definition
+				try {
+					injector.defineComponent(Guitar.class, "LesPaul", () -> new Guitar("LesPaul"));
+				}
+				catch (RuntimeException e) {
+					duplicates.incrementAndGet();
+				}
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(threadCount - 1, duplicates.get());
+		injector.freeze();
+		Body body = injector.getComponent(Body.class);
+		for (int i = 0; i < threadCount; i++) {
+			for (int j = 0; j < definitionsPerThread; j++) {
+				String name = "Bass" + i + "-" + j;
+				ComponentKey<Bass> key = injector.getComponentKey(Bass.class, name);
+				assertEquals(name, key.getName());
+				assertSame(body, injector.getComponent(key).getBody());
+			}
+		}
+		assertEquals("LesPaul", injector.getComponent(Guitar.class, "LesPaul").getModel());
+	}
+
+	public void testMembersInjector() {
+		Injector injector = new Injector();
+		injector.defineComponent(Roadie.class, Roadie::new);
+		injector.defineComponent(Body.class, true, Body::new);
+		injector.defineComponent(Guitar.class, "LesPaul", () -> new Guitar("LesPaul"));
+		injector.defineComponent(Artist.class, Artist::new);
+		injector.freeze();
+
+		// generated injection points do not refer to reflected fields
+		for (Injection injection : ClassMetadata.forType(Roadie.class).createInjections()) {
+			assertNull(injection.getField());
+		}
+
+		Roadie roadie = injector.getComponent(Roadie.class);
+		assertSame(injector.getComponent(Body.class), roadie.getBody());
+		assertEquals("LesPaul", roadie.getGuitar().getModel());
+		assertEquals(1, roadie.getInitCount());
+	}
+
+	public void testGeneratedCallbacks() throws Exception {
+		Injector injector = new Injector();
+		injector.defineComponent(Body.class, Scope.SINGLETON);
+		injector.defineComponent(Artist.class);
+		injector.defineComponent(LightTechnician.class, Scope.SINGLETON);
+		injector.freeze();
+
+		// both levels are handled by injectors generated by the annotation processor
+		assertNotNull(Class.forName(Technician.class.getName() + MembersInjector.SUFFIX));
+		assertNotNull(Class.forName(LightTechnician.class.getName() + MembersInjector.SUFFIX));
+
+		LightTechnician technician = injector.getComponent(LightTechnician.class);
+		assertSame(injector.getComponent(Body.class), technician.getBody());
+		assertNotNull(technician.getArtist());
+
+		// the overridden ancestor callback is skipped, the inherited one is kept
+		assertEquals(1, technician.getInitCount());
+		assertEquals(1, technician.getLightCount());
+		injector.close();
+		assertEquals(1, technician.getDestroyCount());
+	}
+
+	public void testCallbackOverrideWithoutAnnotation() {
+		Injector injector = new Injector();
+		injector.defineComponent(Body.class);
+		injector.defineComponent(SoundTechnician.class);
+
+		// the ancestor callback is kept and dispatches to the override once
+		SoundTechnician technician = injector.getComponent(SoundTechnician.class);
+		assertEquals(1, technician.getInitCount());
+		assertEquals(1, technician.getSoundCount());
+	}
+
+	public void testConstructorInjection() {
+		Injector injector = new Injector();
+		injector.defineComponent(Setlist.class);
+		injector.defineComponent(Body.class, Scope.SINGLETON);
+		injector.defineComponent(Bass.class);
+		injector.defineComponent(Guitar.class, "LesPaul", () -> new Guitar("LesPaul"));
+		injector.defineComponent(Artist.class);
+		injector.freeze();
+
+		Setlist setlist = injector.getComponent(Setlist.class);
+		assertSame(injector.getComponent(Body.class), setlist.getBody());
+		assertEquals("LesPaul", setlist.getGuitar().getModel());
+		assertTrue(setlist.getGuitar().isInitialized());
+		assertSame(setlist.getBody(), setlist.getBassProvider().provide().getBody());
+		assertNotSame(setlist, injector.getComponent(Setlist.class));
+	}
+
+	public void testConstructorCycles() {
+		// a singleton constructed from its own dependencies cannot be resolved
+		Injector injector = new Injector();
+		injector.defineComponent(Tour.class, Scope.SINGLETON);
+		injector.defineComponent(Venue.class);
+		try {
+			injector.freeze();
+			fail("constructor cycle not detected");
+		}
+		catch (RuntimeException e) {
+			assertTrue(e.getMessage().contains("cyclic dependency"));
+		}
+
+		injector = new Injector();
+		injector.defineComponent(Tour.class, Scope.SINGLETON);
+		injector.defineComponent(Venue.class);
+		try {
+			injector.getComponent(Tour.class);
+			fail("constructor cycle not detected");
+		}
+		catch (RuntimeException e) {
+			assertTrue(e.getMessage().contains("cyclic constructor dependency"));
+		}
+
+		// field injection into a singleton breaks the cycle
+		injector = new Injector();
+		injector.defineComponent(Tour.class);
+		injector.defineComponent(Venue.class, Scope.SINGLETON);
+		injector.freeze();
+		Venue venue = injector.getComponent(Venue.class);
+		assertSame(venue, venue.getTour().getVenue());
+	}
+
+	public void testClose() {
+		Injector injector = new Injector();
+		injector.defineComponent(Logbook.class, Scope.SINGLETON);
+		injector.defineComponent(Mixer.class, Scope.SINGLETON);
+		injector.defineComponent(Speaker.class, Scope.SINGLETON);
+		injector.freeze();
+
+		Logbook logbook = injector.getComponent(Logbook.class);
+		Mixer mixer = injector.getComponent(Mixer.class);
+		assertEquals(Arrays.asList("connect Speaker", "connect Mixer", "initialize Mixer"), logbook.getEntries());
+
+		// dependents first, subclass callbacks first
+		injector.close();
+		assertEquals(Arrays.asList("connect Speaker", "connect Mixer", "initialize Mixer", "shutdown Mixer", "disconnect Mixer",
+			"disconnect Speaker"), logbook.getEntries());
+		assertNotNull(mixer.getSpeaker());
+
+		// nothing left to destroy
+		injector.close();
+		assertEquals(6, logbook.getEntries().size());
+	}
+
+	public void testClear() {
+		Injector injector = new Injector();
+		injector.setCachePolicy(CachePolicy.DEFAULT.withReferences(CachePolicy.References.STRONG));
+		injector.defineComponent(Technician.class, Scope.SINGLETON);
+		injector.defineComponent(LightTechnician.class, Scope.CACHED);
+		injector.defineComponent(Body.class, Scope.FRAME);
+		injector.defineComponent(Drums.class, Scope.THREAD, Drums::new);
+		injector.defineComponent(Artist.class);
+
+		injector.beginScope();
+		try {
+			Technician technician = injector.getComponent(Technician.class);
+			LightTechnician lightTechnician = injector.getComponent(LightTechnician.class);
+			Drums drums = injector.getComponent(Drums.class);
+
+			// singletons and cached instances are destroyed once
+			injector.clear();
+			assertEquals(1, technician.getDestroyCount());
+			assertEquals(1, lightTechnician.getDestroyCount());
+
+			// new definitions reuse the ids, but not the instances of the cleared ones
+			injector.defineComponent(Technician.class, Scope.SINGLETON);
+			injector.defineComponent(Body.class);
+			injector.defineComponent(Artist.class, Scope.FRAME);
+			injector.defineComponent(Drums.class, Scope.THREAD, Drums::new);
+			assertNotNull(injector.getComponent(Artist.class));
+			assertNotSame(drums, injector.getComponent(Drums.class));
+
+			Technician newTechnician = injector.getComponent(Technician.class);
+			assertNotSame(technician, newTechnician);
+			injector.close();
+			assertEquals(1, technician.getDestroyCount());
+			assertEquals(1, newTechnician.getDestroyCount());
+		}
+		finally {
+			injector.endScope();
+		}
+	}
+
+	public void testParallelClose() throws Exception {
+		Injector injector = new Injector();
+		injector.defineComponent(Logbook.class, Scope.SINGLETON);
+		injector.defineComponent(Mixer.class, Scope.SINGLETON);
+		injector.defineComponent(Speaker.class, Scope.SINGLETON);
+		injector.defineComponent(Body.class, Scope.SINGLETON);
+		injector.freeze();
+		injector.initializeSingletons(ForkJoinPool.commonPool()).get();
+		Logbook logbook = injector.getComponent(Logbook.class);
+
+		injector.close(ForkJoinPool.commonPool()).get();
+		List<String> entries = logbook.getEntries();
+		assertEquals(6, entries.size());
+		assertTrue(entries.indexOf("disconnect Mixer") < entries.indexOf("disconnect Speaker"));
+	}
+
+	public void testAsyncCreation() throws Exception {
+		Injector injector = new Injector();
+		AtomicInteger created = new AtomicInteger();
+		injector.defineComponent(Body.class, true, () -> {
+			created.incrementAndGet();
+			try {
+				Thread.sleep(20);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return new Body();
+		});
+		injector.defineComponent(Setlist.class);
+		injector.defineComponent(Bass.class);
+		injector.defineComponent(Guitar.class, "LesPaul", () -> new Guitar("LesPaul"));
+		injector.defineComponent(Artist.class);
+		injector.freeze();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<CompletableFuture<Setlist>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(injector.getComponentAsync(Setlist.class, executor));
+			}
+
+			Body body = futures.get(0).get(5, TimeUnit.SECONDS).getBody();
+			for (CompletableFuture<Setlist> future : futures) {
+				Setlist setlist = future.get(5, TimeUnit.SECONDS);
+				assertSame(body, setlist.getBody());
+				assertTrue(setlist.getGuitar().isInitialized());
+				assertSame(body, setlist.getGuitar().getBody());
+			}
+			assertEquals(1, created.get());
+			assertSame(body, injector.getComponent(Body.class));
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testAsyncCyclicSingletons() throws Exception {
+		Injector injector = new Injector();
+		injector.defineComponent(Manager.class, true, Manager::new);
+		injector.defineComponent(Label.class, true, Label::new);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// the cyclic dependency is resolved while creating the singleton instead of waiting for it
+			Manager manager = injector.getComponentAsync(Manager.class, executor).get(5, TimeUnit.SECONDS);
+			Label label = injector.getComponentAsync(Label.class, executor).get(5, TimeUnit.SECONDS);
+			assertSame(label, manager.getLabel());
+			assertSame(manager, label.getManager());
+
+			// cycles are computed again for changed definitions
+			injector.redefineComponent(Label.class, Scope.SINGLETON, Label::new);
+			injector.redefineComponent(Manager.class, Scope.SINGLETON, Manager::new);
+			manager = injector.getComponentAsync(Manager.class, executor).get(5, TimeUnit.SECONDS);
+			assertNotSame(label, manager.getLabel());
+			assertSame(manager, manager.getLabel().getManager());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testCachedScope() {
+		Injector injector = new Injector();
+		injector.setCachePolicy(CachePolicy.DEFAULT.withReferences(CachePolicy.References.STRONG).withMaxEntries(2));
+		injector.defineComponent(Bass.class, Scope.CACHED);
+		injector.defineComponent(Guitar.class, Scope.CACHED);
+		injector.defineComponent(Drums.class, Scope.CACHED, Drums::new);
+		injector.defineComponent(Body.class);
+		injector.defineComponent(Artist.class);
+		injector.freeze();
+
+		Bass bass = injector.getComponent(Bass.class);
+		Guitar guitar = injector.getComponent(Guitar.class);
+		assertSame(bass, injector.getComponent(Bass.class));
+		assertSame(guitar, injector.getComponent(Guitar.class));
+
+		// the least recently used guitar gets evicted
+		injector.getComponent(Bass.class);
+		Drums drums = injector.getComponent(Drums.class);
+		assertSame(drums, injector.getComponent(Drums.class));
+		assertSame(bass, injector.getComponent(Bass.class));
+		assertNotSame(guitar, injector.getComponent(Guitar.class));
+	}
+
+	public void testCachePolicyBounds() throws Exception {
+		Injector injector = new Injector();
+		injector.setCachePolicy(CachePolicy.DEFAULT
+			.withReferences(CachePolicy.References.STRONG)
+			.withMaxWeight(10, component -> component instanceof Bass ? 8 : 4));
+		injector.defineComponent(Bass.class, Scope.CACHED);
+		injector.defineComponent(Drums.class, Scope.CACHED, Drums::new);
+		injector.defineComponent(Body.class);
+		injector.defineComponent(Artist.class);
+
+		// both do not fit into the cache
+		Bass bass = injector.getComponent(Bass.class);
+		injector.getComponent(Drums.class);
+		assertNotSame(bass, injector.getComponent(Bass.class));
+
+		// expired entries are recreated
+		injector = new Injector();
+		injector.setCachePolicy(CachePolicy.DEFAULT.withExpireAfterAccess(1, TimeUnit.MILLISECONDS));
+		injector.defineComponent(Bass.class, Scope.CACHED);
+		injector.defineComponent(Body.class);
+		bass = injector.getComponent(Bass.class);
+		Thread.sleep(5);
+		assertNotSame(bass, injector.getComponent(Bass.class));
+	}
+
+	public void testCachedDestruction() throws Exception {
+		Injector injector = new Injector();
+		injector.setCachePolicy(CachePolicy.DEFAULT.withReferences(CachePolicy.References.STRONG).withMaxEntries(1));
+		injector.defineComponent(Technician.class, Scope.CACHED);
+		injector.defineComponent(LightTechnician.class, Scope.CACHED);
+		injector.defineComponent(Body.class);
+		injector.defineComponent(Artist.class);
+
+		// evicted by the policy
+		Technician technician = injector.getComponent(Technician.class);
+		LightTechnician lightTechnician = injector.getComponent(LightTechnician.class);
+		assertEquals(1, technician.getDestroyCount());
+		assertEquals(0, lightTechnician.getDestroyCount());
+
+		// evicted by redefinition
+		injector.redefineComponent(LightTechnician.class, Scope.CACHED);
+		assertEquals(1, lightTechnician.getDestroyCount());
+
+		// destroyed on close
+		technician = injector.getComponent(Technician.class);
+		injector.close();
+		assertEquals(1, technician.getDestroyCount());
+
+		// expired
+		injector = new Injector();
+		injector.setCachePolicy(CachePolicy.DEFAULT.withReferences(CachePolicy.References.STRONG).withExpireAfterAccess(1, TimeUnit.MILLISECONDS));
+		injector.defineComponent(Technician.class, Scope.CACHED);
+		injector.defineComponent(Body.class);
+		technician = injector.getComponent(Technician.class);
+		Thread.sleep(5);
+		assertNotSame(technician, injector.getComponent(Technician.class));
+		assertEquals(1, technician.getDestroyCount());
+
+		// softly referenced instances are never destroyed
+		injector = new Injector();
+		injector.defineComponent(Technician.class, Scope.CACHED);
+		injector.defineComponent(Body.class);
+		technician = injector.getComponent(Technician.class);
+		injector.close();
+		assertEquals(0, technician.getDestroyCount());
+	}
+
+	public void testCollectionInjection() {
+		Injector injector = new Injector();
+		injector.defineComponent(Orchestra.class);
+		injector.defineComponent(Guitar.class, true, Guitar::new);
+		injector.defineComponent(Drums.class, Drums::new);
+		injector.defineComponent(Guitar.class, "LesPaul", () -> new Guitar("LesPaul"));
+		injector.defineComponent(Guitar.class, "Telecaster", () -> new Guitar("Telecaster"));
+		injector.defineComponent(Body.class);
+		injector.defineComponent(Artist.class);
+		injector.freeze();
+
+		Orchestra orchestra = injector.getComponent(Orchestra.class);
+		List<Instrument> instruments = orchestra.getInstruments();
+		assertEquals(4, instruments.size());
+		assertSame(injector.getComponent(Guitar.class), instruments.get(0));
+		assertTrue(instruments.get(1) instanceof Drums);
+		assertEquals("LesPaul", ((Guitar)instruments.get(2)).getModel());
+
+		Instrument[] instrumentArray = orchestra.getInstrumentArray();
+		assertEquals(4, instrumentArray.length);
+		assertSame(instruments.get(0), instrumentArray[0]);
+		assertNotSame(instruments.get(1), instrumentArray[1]);
+
+		// only named components are mapped
+		assertEquals(Arrays.asList("LesPaul", "Telecaster"), new ArrayList<>(orchestra.getGuitarsByName().keySet()));
+		assertEquals("Telecaster", orchestra.getGuitarsByName().get("Telecaster").getModel());
+
+		// no matching components inject empty collections
+		injector = new Injector();
+		injector.defineComponent(Orchestra.class);
+		orchestra = injector.getComponent(Orchestra.class);
+		assertTrue(orchestra.getInstruments().isEmpty());
+		assertEquals(0, orchestra.getInstrumentArray().length);
+		assertTrue(orchestra.getGuitarsByName().isEmpty());
+
+		// components defined after the first lookup are injected as well
+		injector.defineComponent(Body.class);
+		injector.defineComponent(Artist.class);
+		injector.defineComponent(Guitar.class, "LesPaul", () -> new Guitar("LesPaul"));
+		orchestra = injector.getComponent(Orchestra.class);
+		assertEquals(1, orchestra.getInstruments().size());
+		assertEquals(1, orchestra.getInstrumentArray().length);
+		assertEquals("LesPaul", orchestra.getGuitarsByName().get("LesPaul").getModel());
+
+		injector.defineComponent(Drums.class, Drums::new);
+		injector.freeze();
+		orchestra = injector.getComponent(Orchestra.class);
+		assertEquals(2, orchestra.getInstruments().size());
+		assertEquals(2, orchestra.getInstrumentArray().length);
+		assertEquals(1, orchestra.getGuitarsByName().size());
+	}
+
+	public void testInjectMembers() {
+		Injector injector = new Injector();
+		injector.defineComponent(Body.class, Scope.SINGLETON);
+		injector.defineComponent(Artist.class);
+		injector.freeze();
+
+		// neither Guitar nor Bass are defined as components
+		Guitar guitar = new Guitar("LesPaul");
+		injector.injectMembers(guitar);
+		assertSame(injector.getComponent(Body.class), guitar.getBody());
+		assertNotNull(guitar.getOwner());
+		assertTrue(guitar.isInitialized());
+
+		List<Object> loaded = new ArrayList<>();
+		for (int i = 0; i < Injector.PARALLEL_BATCH_THRESHOLD * 3; i++) {
+			loaded.add(i % 2 == 0 ? new Bass() : new Guitar());
+		}
+		injector.injectMembers(loaded, ForkJoinPool.commonPool());
+		for (Object component : loaded) {
+			if (component instanceof Bass) {
+				assertSame(guitar.getBody(), ((Bass)component).getBody());
+			}
+			else {
+				assertTrue(((Guitar)component).isInitialized());
+			}
+		}
+	}
+
+	public void testRedefinition() {
+		Injector injector = new Injector();
+		injector.defineComponent(Guitar.class, Guitar::new);
+		injector.defineComponent(Drums.class, Drums::new);
+		injector.defineComponent(Body.class, Scope.SINGLETON);
+		injector.defineComponent(Artist.class);
+		injector.defineComponent(Orchestra.class);
+		ComponentKey<Body> bodyKey = injector.getComponentKey(Body.class);
+
+		Guitar guitar = injector.getComponent(Guitar.class);
+		Body body = guitar.getBody();
+		assertEquals(2, injector.getComponent(Orchestra.class).getInstruments().size());
+
+		// dependents of the replaced definition pick up the new one, existing instances are left alone
+		Body newBody = new Body();
+		assertSame(bodyKey, injector.redefineComponent(Body.class, Scope.SINGLETON, () -> newBody));
+		assertSame(newBody, injector.getComponent(bodyKey));
+		assertSame(newBody, injector.getComponent(Guitar.class).getBody());
+		assertSame(body, guitar.getBody());
+
+		// collection injections follow as well
+		injector.redefineComponent(Guitar.class, Scope.PROTOTYPE, () -> new Guitar("Stratocaster"));
+		List<Instrument> instruments = injector.getComponent(Orchestra.class).getInstruments();
+		assertEquals("Stratocaster", ((Guitar)instruments.get(0)).getModel());
+		assertSame(newBody, ((Guitar)instruments.get(0)).getBody());
+
+		// removed components are neither injected nor looked up by their ancestors
+		injector.removeComponent(Guitar.class);
+		assertEquals(1, injector.getComponent(Orchestra.class).getInstruments().size());
+		assertTrue(injector.getComponent(Instrument.class) instanceof Drums);
+		try {
+			injector.getComponent(Guitar.class);
+			fail("removed component found");
+		}
+		catch (RuntimeException e) {
+		}
+
+		injector.freeze();
+		try {
+			injector.redefineComponent(Body.class, Scope.SINGLETON);
+			fail("redefined component after freeze");
+		}
+		catch (RuntimeException e) {
+		}
+	}
+
+	public void testConcurrentRedefinition() throws Exception {
+		Injector injector = new Injector();
+		injector.defineComponent(Crew.class);
+		injector.defineComponent(Orchestra.class);
+		injector.defineComponent(Bass.class);
+		injector.defineComponent(Guitar.class, Guitar::new);
+		injector.defineComponent(Drums.class, Drums::new);
+		injector.defineComponent(Body.class);
+		injector.defineComponent(Artist.class);
+
+		// components requested while their dependencies are replaced always get complete injections
+		AtomicBoolean redefining = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				futures.add(executor.submit(() -> {
+					while (redefining.get()) {
+						Crew crew = injector.getComponent(Crew.class);
+						assertNotNull(crew.getGuitars().provide());
+						assertNotNull(crew.getSpareBass().get());
+						Orchestra orchestra = injector.getComponent(Orchestra.class);
+						assertEquals(2, orchestra.getInstruments().size());
+						assertEquals(2, orchestra.getInstrumentArray().length);
+					}
+				}));
+			}
+			for (int i = 0; i < 2000; i++) {
+				injector.redefineComponent(Guitar.class, Scope.PROTOTYPE, Guitar::new);
+				injector.redefineComponent(Bass.class, Scope.PROTOTYPE);
+			}
+			redefining.set(false);
+			for (Future<?> future : futures) {
+				future.get(5, TimeUnit.SECONDS);
+			}
+		}
+		finally {
+			redefining.set(false);
+			executor.shutdown();
+		}
+	}
+
+	public void testMetadataIndex() throws Exception {
+		Path path = Files.createTempFile("blackcat", ".index");
+		try {
+			Injector injector = new Injector();
+			injector.defineComponent(Guitar.class, Guitar::new);
+			injector.defineComponent(Body.class);
+			injector.defineComponent(Artist.class);
+			injector.writeMetadataIndex(path, "1.0");
+
+			// every class level is indexed with its own members
+			MetadataIndex index = MetadataIndex.load(path, "1.0");
+			assertEquals(Arrays.asList("body"), Arrays.asList(index.get(Guitar.class).fieldNames));
+			assertEquals(Arrays.asList("initialize"), Arrays.asList(index.get(Guitar.class).methodNames));
+			assertEquals(Arrays.asList("owner"), Arrays.asList(index.get(Instrument.class).fieldNames));
+			assertNull(index.get(Bass.class));
+
+			// indexed members are used without looking at annotations, here the field without Inject annotation
+			Map<Class<?>, MetadataIndex.ClassEntry> entries = new HashMap<>();
+			entries.put(Stagehand.class, new MetadataIndex.ClassEntry(new String[] {"spare"}, new String[] {null},
+				new String[] {"initialize"}, new byte[] {MetadataIndex.POST_CONSTRUCT}));
+			MetadataIndex.write(path, "1.0", entries);
+			assertTrue(Injector.loadMetadataIndex(path, "1.0"));
+			injector = new Injector();
+			injector.defineComponent(Stagehand.class);
+			injector.defineComponent(Body.class);
+			Stagehand stagehand = injector.getComponent(Stagehand.class);
+			assertNull(stagehand.getBody());
+			assertNotNull(stagehand.getSpare());
+			assertTrue(stagehand.isInitialized());
+
+			// indexes of other builds are ignored until written again
+			assertFalse(Injector.loadMetadataIndex(path, "1.1"));
+			injector.writeMetadataIndex(path, "1.1");
+			assertTrue(Injector.loadMetadataIndex(path, "1.1"));
+			assertNotNull(MetadataIndex.load(path, "1.1").get(Stagehand.class));
+
+			// unusable files are ignored
+			Files.write(path, new byte[] {0x42, 0x43});
+			assertFalse(Injector.loadMetadataIndex(path, "1.1"));
+			Files.delete(path);
+			assertFalse(Injector.loadMetadataIndex(path, "1.1"));
+		}
+		finally {
+			ClassMetadata.setIndex(null);
+			Files.deleteIfExists(path);
+		}
+	}
 }
@@ -0,0 +1,14 @@
+package de.voodoosoft.blackcat;
+
+public class Tour {
+	private final Venue venue;
+
+	@Inject
+	public Tour(Venue venue) {
+		this.venue = venue;
+	}
+
+	public Venue getVenue() {
+		return venue;
+	}
+}
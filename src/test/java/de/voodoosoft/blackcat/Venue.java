@@ -0,0 +1,13 @@
+package de.voodoosoft.blackcat;
+
+public class Venue {
+	@Inject
+	private Tour tour;
+
+	public Venue() {
+	}
+
+	public Tour getTour() {
+		return tour;
+	}
+}